@@ -0,0 +1,96 @@
+package de.jojomodding.np;
+
+import de.jojomodding.np.algo.CCSTransitionDerivation;
+import de.jojomodding.np.ccs.expr.Binding;
+import de.jojomodding.np.ccs.expr.CCSExpression;
+import de.jojomodding.np.ccs.parse.Parser;
+import de.jojomodding.np.lts.Action;
+import de.jojomodding.np.util.BoundedCache;
+import de.jojomodding.np.util.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Measures the throughput of derivations when many threads share one {@link CCSTransitionDerivation}, compared to
+ * each thread using its own. Every thread starts from a cold deriver and performs random walks, deriving each state on
+ * the way, so the threads contend for the variable derivations as well as for the cache.
+ * <p>
+ * Usage: {@code gradle derivationBenchmark --args="[max threads] [walks per thread]"}
+ */
+public class DerivationBenchmark {
+
+    private static final int WALK_LENGTH = 200;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int walks = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Pair<Binding, CCSExpression> model = Parser.parse(
+                "Scientist := getmail? . MailWritingScientist + zoom? . (Scientist + meet! . Scientist)\n"
+                + "MailWritingScientist := moan! . MailWritingScientist + sendmail! . Scientist + zoom? . (MailWritingScientist + meet! . MailWritingScientist)\n"
+                + "Scientists := Scientist | Scientist | Scientist\n"
+                + "Server := getmail! . Server + sendmail? . Server + i . reboot? . Server\n"
+                + "Administrator := music? . Administrator + reboot! . Administrator\n"
+                + "Professor := read! . Professor + zoom! . zoom! . zoom! . \n"
+                + "            (scream! . Professor + meet? . \n"
+                + "                    (scream! . Professor + meet? .\n"
+                + "                            (scream! . Professor + meet? . workharder! . Professor)))\n"
+                + "(Scientists | Server | Administrator | Professor) \\ {reboot, getmail, sendmail, zoom, meet}");
+        //warm up the JIT before measuring
+        run(model, 1, walks, false, BoundedCache::unbounded);
+
+        System.out.println("threads\tshared/unbounded\tshared/bounded(100)\tper thread/unbounded (derivations per second)");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double shared = run(model, threads, walks, true, BoundedCache::unbounded);
+            double bounded = run(model, threads, walks, true, () -> new BoundedCache<>(100, false));
+            double separate = run(model, threads, walks, false, BoundedCache::unbounded);
+            System.out.printf("%d\t%.0f\t%.0f\t%.0f%n", threads, shared, bounded, separate);
+        }
+    }
+
+    /**
+     * Runs the random walks on all threads at once
+     * @return the number of derivations per second
+     */
+    private static double run(Pair<Binding, CCSExpression> model, int threads, int walks, boolean shared,
+                              Supplier<BoundedCache<CCSExpression, Set<Pair<Action, CCSExpression>>>> cache) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CCSTransitionDerivation common = new CCSTransitionDerivation(model.first(), cache.get());
+            List<Future<Long>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                Random random = new Random(t);
+                CCSTransitionDerivation cd = shared ? common : new CCSTransitionDerivation(model.first(), cache.get());
+                results.add(pool.submit(() -> walk(cd, model.second(), walks, random)));
+            }
+            long derivations = 0;
+            for (Future<Long> f : results)
+                derivations += f.get();
+            return derivations / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static long walk(CCSTransitionDerivation cd, CCSExpression base, int walks, Random random) {
+        long derivations = 0;
+        for (int w = 0; w < walks; w++) {
+            CCSExpression state = base;
+            for (int i = 0; i < WALK_LENGTH; i++) {
+                List<Pair<Action, CCSExpression>> successors = new ArrayList<>(cd.derive(state));
+                derivations++;
+                if (successors.isEmpty())
+                    break;
+                state = successors.get(random.nextInt(successors.size())).second();
+            }
+        }
+        return derivations;
+    }
+}
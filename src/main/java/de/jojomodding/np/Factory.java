@@ -10,55 +10,79 @@ import de.jojomodding.np.ccs.expr.Stop;
 import de.jojomodding.np.ccs.expr.Variable;
 import de.jojomodding.np.lts.Action;
 import de.jojomodding.np.lts.Channel;
+import de.jojomodding.np.util.Interner;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 
 /**
- * Constructs all kinds of CCS objects
+ * Constructs all kinds of CCS objects.
+ * All expressions constructed here are interned, i.e. structurally equal expressions are the same object.
  */
 public final class Factory {
 
+    private static final Interner<CCSExpression> expressions = new Interner<>();
+
     private Factory() {
     }
 
+    /**
+     * Finds the canonical expression structurally equal to e
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends CCSExpression> E intern(E e) {
+        return (E) expressions.intern(e);
+    }
+
+    /**
+     * Constructs the expression l+r. Operands that are choices themselves are flattened into it
+     */
+    public static Choice choice(CCSExpression l, CCSExpression r) {
+        if (!(l instanceof Choice) && !(r instanceof Choice))
+            return intern(new Choice(l, r));
+        List<CCSExpression> operands = new ArrayList<>();
+        flattenChoice(l, operands);
+        flattenChoice(r, operands);
+        return intern(new Choice(operands));
+    }
+
+    private static void flattenChoice(CCSExpression e, List<CCSExpression> operands) {
+        if (e instanceof Choice)
+            operands.addAll(((Choice) e).getOperands());
+        else
+            operands.add(e);
+    }
+
     /**
      * Constructs the expression l+r
      */
     public static Choice choice(String l, CCSExpression r) {
-        return new Choice(var(l), r);
+        return choice(var(l), r);
     }
 
     /**
      * Constructs the expression l+r
      */
     public static Choice choice(CCSExpression l, String r) {
-        return new Choice(l, var(r));
+        return choice(l, var(r));
     }
 
     /**
      * Constructs the expression l+r
      */
     public static Choice choice(String l, String r) {
-        return new Choice(var(l), var(r));
+        return choice(var(l), var(r));
     }
 
     /**
      * Constructs the big choice between all expressions given
      */
     public static CCSExpression choice(CCSExpression... base) {
-        if (base.length == 0)
-            return stop();
-        if (base.length == 1)
-            return base[0];
-        CCSExpression exp = base[0];
-        for (int i = 1; i < base.length; i++)
-            exp = new Choice(exp, base[i]);
-        return exp;
+        return choice(Arrays.asList(base));
     }
 
     /**
@@ -69,12 +93,10 @@ public final class Factory {
             return stop();
         if (base.size() == 1)
             return base.get(0);
-        Iterator<CCSExpression> iter = base.iterator();
-        CCSExpression exp = iter.next();
-        while (iter.hasNext()) {
-            exp = new Choice(exp, iter.next());
-        }
-        return exp;
+        List<CCSExpression> operands = new ArrayList<>(base.size());
+        for (CCSExpression e : base)
+            flattenChoice(e, operands);
+        return intern(new Choice(operands));
     }
 
     /**
@@ -84,39 +106,51 @@ public final class Factory {
         return Collectors.collectingAndThen(Collectors.toUnmodifiableList(), Factory::choice);
     }
 
+    /**
+     * Constructs the expression l|r. Operands that are parallels themselves are flattened into it
+     */
+    public static Parallel parallel(CCSExpression l, CCSExpression r) {
+        if (!(l instanceof Parallel) && !(r instanceof Parallel))
+            return intern(new Parallel(l, r));
+        List<CCSExpression> operands = new ArrayList<>();
+        flattenParallel(l, operands);
+        flattenParallel(r, operands);
+        return intern(new Parallel(operands));
+    }
+
+    private static void flattenParallel(CCSExpression e, List<CCSExpression> operands) {
+        if (e instanceof Parallel)
+            operands.addAll(((Parallel) e).getOperands());
+        else
+            operands.add(e);
+    }
+
     /**
      * Constructs the expression l|r
      */
     public static Parallel parallel(String l, CCSExpression r) {
-        return new Parallel(var(l), r);
+        return parallel(var(l), r);
     }
 
     /**
      * Constructs the expression l|r
      */
     public static Parallel parallel(CCSExpression l, String r) {
-        return new Parallel(l, var(r));
+        return parallel(l, var(r));
     }
 
     /**
      * Constructs the expression l|r
      */
     public static Parallel parallel(String l, String r) {
-        return new Parallel(var(l), var(r));
+        return parallel(var(l), var(r));
     }
 
     /**
      * Constructs the big parallelisation of all expressions given
      */
     public static CCSExpression parallel(CCSExpression... base) {
-        if (base.length == 0)
-            return stop();
-        if (base.length == 1)
-            return base[0];
-        CCSExpression exp = base[0];
-        for (int i = 1; i < base.length; i++)
-            exp = new Parallel(exp, base[i]);
-        return exp;
+        return parallel(Arrays.asList(base));
     }
 
     /**
@@ -127,12 +161,10 @@ public final class Factory {
             return stop();
         if (base.size() == 1)
             return base.get(0);
-        Iterator<CCSExpression> iter = base.iterator();
-        CCSExpression exp = iter.next();
-        while (iter.hasNext()) {
-            exp = new Parallel(exp, iter.next());
-        }
-        return exp;
+        List<CCSExpression> operands = new ArrayList<>(base.size());
+        for (CCSExpression e : base)
+            flattenParallel(e, operands);
+        return intern(new Parallel(operands));
     }
 
     /**
@@ -146,28 +178,28 @@ public final class Factory {
      * Constructs the expression l\r
      */
     public static Restrict restrict(CCSExpression l, FilterSet r) {
-        return new Restrict(l, r);
+        return intern(new Restrict(l, r));
     }
 
     /**
      * Constructs the expression l\r
      */
     public static Restrict restrict(String var, FilterSet r) {
-        return new Restrict(var(var), r);
+        return restrict(var(var), r);
     }
 
     /**
      * Constructs the expression a.e
      */
     public static Prefix prefix(Action a, CCSExpression e) {
-        return new Prefix(a, e);
+        return intern(new Prefix(a, e));
     }
 
     /**
      * Constructs the expression a.e
      */
     public static Prefix prefix(Action a, String var) {
-        return new Prefix(a, var(var));
+        return prefix(a, var(var));
     }
 
     /**
@@ -181,7 +213,7 @@ public final class Factory {
      * Constructs the expression that is the recursion variable s
      */
     public static Variable var(String s) {
-        return new Variable(s);
+        return intern(new Variable(s));
     }
 
     /**
@@ -223,7 +255,7 @@ public final class Factory {
      * Constructs the channel 'name'
      */
     public static Channel of(String name) {
-        return new Channel(name);
+        return Channel.of(name);
     }
 
     /**
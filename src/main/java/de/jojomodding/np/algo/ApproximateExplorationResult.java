@@ -0,0 +1,67 @@
+package de.jojomodding.np.algo;
+
+/**
+ * The outcome of an exploration that only stored approximations of the visited states
+ */
+public final class ApproximateExplorationResult {
+
+    private final long states;
+    private final long transitions;
+    private final double expectedOmissions;
+    private final long droppedStates;
+
+    public ApproximateExplorationResult(long states, long transitions, double expectedOmissions, long droppedStates) {
+        this.states = states;
+        this.transitions = transitions;
+        this.expectedOmissions = expectedOmissions;
+        this.droppedStates = droppedStates;
+    }
+
+    /**
+     * The number of explored states
+     */
+    public long getStates() {
+        return states;
+    }
+
+    /**
+     * The number of transitions of the explored states
+     */
+    public long getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * The expected number of states that were omitted because they were wrongly considered visited
+     * @see ApproximateStateSet#getExpectedOmissions()
+     */
+    public double getExpectedOmissions() {
+        return expectedOmissions;
+    }
+
+    /**
+     * The number of states that were omitted because the frontier was full
+     */
+    public long getDroppedStates() {
+        return droppedStates;
+    }
+
+    /**
+     * The probability that at least one state was omitted
+     */
+    public double getOmissionProbability() {
+        return droppedStates > 0 ? 1 : -Math.expm1(-expectedOmissions);
+    }
+
+    /**
+     * The estimated fraction of the reachable states that were explored
+     */
+    public double getEstimatedCoverage() {
+        return states / (states + expectedOmissions + droppedStates);
+    }
+
+    @Override
+    public String toString() {
+        return states + " states, " + transitions + " transitions, " + expectedOmissions + " expected omissions, " + droppedStates + " dropped states (omission probability " + getOmissionProbability() + ", estimated coverage " + getEstimatedCoverage() + ")";
+    }
+}
@@ -0,0 +1,27 @@
+package de.jojomodding.np.algo;
+
+/**
+ * A set of visited states that only stores a few bits per state, derived from the state's 64-bit fingerprint.
+ * It may wrongly consider a new state visited, in which case the state and everything only reachable through it are
+ * omitted from the exploration. It estimates how many states it omitted this way.
+ */
+public interface ApproximateStateSet {
+
+    /**
+     * Adds a state
+     * @param fingerprint the fingerprint of the state
+     * @return whether the state is considered new
+     */
+    boolean add(long fingerprint);
+
+    /**
+     * The number of states that were considered new
+     */
+    long size();
+
+    /**
+     * The expected number of new states that were wrongly considered visited. States only reachable through those are
+     * not counted.
+     */
+    double getExpectedOmissions();
+}
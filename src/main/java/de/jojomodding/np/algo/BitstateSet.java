@@ -0,0 +1,81 @@
+package de.jojomodding.np.algo;
+
+import de.jojomodding.np.util.Fingerprints;
+
+/**
+ * An approximate state set that sets k bits of a fixed bit array for each state, also known as bitstate hashing or
+ * supertrace. A state is considered visited if all of its bits are set. Uses 2<sup>log2Bits</sup>/8 bytes, no matter
+ * how many states are added.
+ */
+public final class BitstateSet implements ApproximateStateSet {
+
+    private final long[] bits;
+    private final long mask;
+    private final int hashFunctions;
+    private long setBits;
+    private long size;
+    private double expectedOmissions;
+
+    /**
+     * Constructs a new set
+     * @param log2Bits the binary logarithm of the number of bits, between 6 and 36
+     * @param hashFunctions the number of bits set for each state
+     */
+    public BitstateSet(int log2Bits, int hashFunctions) {
+        if (log2Bits < 6 || log2Bits > 36)
+            throw new IllegalArgumentException("The binary logarithm of the number of bits must be between 6 and 36, not " + log2Bits + "!");
+        if (hashFunctions <= 0)
+            throw new IllegalArgumentException("At least one hash function is needed, not " + hashFunctions + "!");
+        this.bits = new long[1 << (log2Bits - 6)];
+        this.mask = (1L << log2Bits) - 1;
+        this.hashFunctions = hashFunctions;
+    }
+
+    @Override
+    public boolean add(long fingerprint) {
+        //the k indices are derived from two independent hashes by double hashing
+        long h2 = Fingerprints.mix(fingerprint) | 1;
+        boolean isNew = false;
+        for (int i = 0; i < hashFunctions && !isNew; i++)
+            isNew = !isSet((fingerprint + i * h2) & mask);
+        if (!isNew)
+            return false;
+        //a new state would have been omitted if all its bits had already been set
+        expectedOmissions += Math.pow((double) setBits / (mask + 1), hashFunctions);
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = (fingerprint + i * h2) & mask;
+            if (!isSet(index)) {
+                bits[(int) (index >>> 6)] |= 1L << index;
+                setBits++;
+            }
+        }
+        size++;
+        return true;
+    }
+
+    private boolean isSet(long index) {
+        return (bits[(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public double getExpectedOmissions() {
+        return expectedOmissions;
+    }
+
+    /**
+     * The fraction of bits that are set
+     */
+    public double getFillRatio() {
+        return (double) setBits / (mask + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "BitstateSet(" + size + " states, " + (mask + 1) + " bits, " + hashFunctions + " hash functions)";
+    }
+}
@@ -0,0 +1,927 @@
+package de.jojomodding.np.algo;
+
+import de.jojomodding.np.lts.Action;
+import de.jojomodding.np.lts.CompactLTS;
+
+import java.util.Arrays;
+
+/**
+ * Computes branching bisimilarity with the algorithm of Groote, Jansen, Keiren and Wijs, which runs in O(m log n) time
+ * for m transitions and n states, after collapsing the τ cycles.
+ * <p>
+ * A τ transition is inert if it stays within a block, and a bottom state has no inert transitions. As in
+ * {@link StrongBisimulation}, the blocks are grouped into constellations, and each block is stable with respect to each
+ * constellation: for each action, either none of its states has a transition into the constellation, or all of its
+ * bottom states have one. Since there are no τ cycles, every state reaches a bottom state inertly, so then every state
+ * of the block can take such a transition after some inert steps. τ transitions between two blocks of the same
+ * constellation are ignored until the blocks end up in different constellations.
+ * <p>
+ * While a constellation consists of several blocks, the smaller of two of them is moved to a constellation of its own,
+ * and the blocks with a transition into it are split. For this, each state counts its transitions into each
+ * constellation per action, and each block keeps a list of the counters of its states per action and constellation, so
+ * only the transitions into and out of the moved block have to be looked at. A block is split by searching for the
+ * states that reach the splitter inertly and for the states that do not at the same time, one transition after the
+ * other, until one of the two searches is complete. Only the part that was found is moved to a new block, so a split
+ * takes time proportional to its smaller part.
+ * <p>
+ * A split can turn states into new bottom states, which may lack a transition that the other bottom states of their
+ * block have. The blocks with new bottom states are split by every list that misses one of them until they are stable
+ * again. A state becomes a bottom state only once, so its transitions are looked at for this only once as well.
+ */
+final class BranchingBisimulation {
+
+    private final CompactLTS lts;
+    private final int tau;
+    //the source of each transition, and the incoming transitions of each state as indices of the outgoing ones
+    private final int[] sources, inFirst, incoming;
+
+    //the blocks, as doubly linked lists of states and of bottom states, where the new bottom states come first
+    private final int[] blockOf, inertCount, nextState, previousState, nextBottom, previousBottom;
+    private final boolean[] isNew;
+    private final int[] firstState, blockSize, firstBottom, lastBottom, bottomCount, newCount, firstList;
+    private int blocks;
+
+    //the blocks with new bottom states that have not been compared to their lists yet
+    private final boolean[] unchecked;
+    private final int[] uncheckedStack;
+    private int uncheckedCount;
+
+    //the constellations, as doubly linked lists of blocks
+    private final int[] constellationOf, nextBlock, previousBlock;
+    private final int[] firstBlock, blockCount;
+    private final boolean[] compound;
+    private final int[] compoundStack;
+    private int compoundCount, constellations;
+
+    //the transitions per state, action and constellation, referenced by each of these transitions, counting only those
+    //that are not τ transitions within a constellation; while a block moves to a new constellation, the counters of its
+    //incoming transitions are replaced, and the original ones stay in their lists until the blocks are split
+    private final int[] counterOf;
+    private int[] count, references, stateOf, listOf, nextInList, previousInList, counterStamp, replacement, original;
+    private int[] freeCounters;
+    private int counters, freeCounterCount;
+
+    //per block, action and constellation the doubly linked list of the counters with a non-zero count
+    private int[] blockOfList, firstInList, lastInList, listSize, newInList, nextList, previousList;
+    private int[] listStamp, listReplacement;
+    private boolean[] queued;
+    private int[] freeLists, listQueue, emptiedLists;
+    private int lists, freeListCount, queueCount, emptied;
+
+    //scratch space for splitting
+    private final int[] mark, reached, remaining, remainingStamp;
+    private final int[] touched, touchedNext, actionFirst, actionStamp, touchedActions;
+    private final int[] groupFirst, groupStamp, groupNext, groupBlocks, blockList, blockListStamp, derived;
+    private final Reaching reaching;
+    private final Avoiding avoiding;
+    private int round, search, derivedCount;
+
+    private BranchingBisimulation(CompactLTS lts) {
+        this.lts = lts;
+        int n = lts.getStateCount(), m = lts.getTransitionCount();
+        tau = lts.getActionId(Action.tau());
+        sources = new int[m];
+        for (int s = 0; s < n; s++)
+            for (int i = lts.outStart(s); i < lts.outEnd(s); i++)
+                sources[i] = s;
+        inFirst = new int[n + 1];
+        incoming = new int[m];
+        for (int i = 0; i < m; i++)
+            inFirst[lts.outTarget(i) + 1]++;
+        for (int s = 0; s < n; s++)
+            inFirst[s + 1] += inFirst[s];
+        int[] next = inFirst.clone();
+        for (int i = 0; i < m; i++)
+            incoming[next[lts.outTarget(i)]++] = i;
+
+        blockOf = new int[n];
+        inertCount = new int[n];
+        nextState = new int[n];
+        previousState = new int[n];
+        nextBottom = new int[n];
+        previousBottom = new int[n];
+        isNew = new boolean[n];
+        firstState = new int[n + 1];
+        blockSize = new int[n + 1];
+        firstBottom = new int[n + 1];
+        lastBottom = new int[n + 1];
+        bottomCount = new int[n + 1];
+        newCount = new int[n + 1];
+        firstList = new int[n + 1];
+        unchecked = new boolean[n + 1];
+        uncheckedStack = new int[n + 1];
+        constellationOf = new int[n + 1];
+        nextBlock = new int[n + 1];
+        previousBlock = new int[n + 1];
+        firstBlock = new int[n + 1];
+        blockCount = new int[n + 1];
+        compound = new boolean[n + 1];
+        compoundStack = new int[n + 1];
+
+        counterOf = new int[m];
+        int capacity = Math.max(m, 1);
+        count = new int[capacity];
+        references = new int[capacity];
+        stateOf = new int[capacity];
+        listOf = new int[capacity];
+        nextInList = new int[capacity];
+        previousInList = new int[capacity];
+        counterStamp = new int[capacity];
+        replacement = new int[capacity];
+        original = new int[capacity];
+        freeCounters = new int[capacity];
+        blockOfList = new int[capacity];
+        firstInList = new int[capacity];
+        lastInList = new int[capacity];
+        listSize = new int[capacity];
+        newInList = new int[capacity];
+        nextList = new int[capacity];
+        previousList = new int[capacity];
+        listStamp = new int[capacity];
+        listReplacement = new int[capacity];
+        queued = new boolean[capacity];
+        freeLists = new int[capacity];
+        listQueue = new int[capacity];
+        emptiedLists = new int[capacity];
+
+        mark = new int[n];
+        reached = new int[n];
+        remaining = new int[n];
+        remainingStamp = new int[n];
+        touched = new int[m];
+        touchedNext = new int[m];
+        actionFirst = new int[lts.getActionCount()];
+        actionStamp = new int[lts.getActionCount()];
+        touchedActions = new int[lts.getActionCount()];
+        groupFirst = new int[n + 1];
+        groupStamp = new int[n + 1];
+        groupNext = new int[m];
+        groupBlocks = new int[n + 1];
+        blockList = new int[n + 1];
+        blockListStamp = new int[n + 1];
+        derived = new int[n + 1];
+        reaching = new Reaching(n);
+        avoiding = new Avoiding(n);
+        if (n > 0)
+            initialize(n, m);
+    }
+
+    /**
+     * Puts all states into one block and one constellation, where all bottom states are new
+     */
+    private void initialize(int n, int m) {
+        blocks = constellations = 1;
+        firstBottom[0] = lastBottom[0] = firstList[0] = -1;
+        for (int s = 0; s < n; s++) {
+            nextState[s] = s + 1 < n ? s + 1 : -1;
+            previousState[s] = s - 1;
+        }
+        blockSize[0] = n;
+        nextBlock[0] = previousBlock[0] = -1;
+        blockCount[0] = 1;
+        //the rows are sorted by action, so the transitions of a state with the same action are adjacent
+        for (int i = 0; i < m; i++) {
+            int s = sources[i], a = lts.outAction(i);
+            counterOf[i] = i > 0 && s == sources[i - 1] && a == lts.outAction(i - 1) ? counterOf[i - 1] : newCounter(s);
+            references[counterOf[i]]++;
+            if (a == tau)
+                inertCount[s]++;
+            else
+                count[counterOf[i]]++;
+        }
+        for (int s = 0; s < n; s++) {
+            if (inertCount[s] == 0) {
+                isNew[s] = true;
+                addBottom(0, s);
+            }
+        }
+        int[] listOfAction = new int[lts.getActionCount()];
+        Arrays.fill(listOfAction, -1);
+        for (int i = 0; i < m; i++) {
+            int k = counterOf[i], a = lts.outAction(i);
+            if (count[k] > 0 && listOf[k] < 0) {
+                if (listOfAction[a] < 0)
+                    listOfAction[a] = newList(0);
+                insert(k, listOfAction[a]);
+            }
+        }
+        pushUnchecked(0);
+    }
+
+    /**
+     * Computes the branching bisimilarity classes
+     * @return the class of each state, where the classes are numbered from 0
+     */
+    static int[] classes(CompactLTS lts) {
+        TauComponents components = new TauComponents(lts);
+        BranchingBisimulation b = new BranchingBisimulation(components.collapse(lts));
+        b.refine();
+        int[] classes = new int[lts.getStateCount()];
+        for (int s = 0; s < classes.length; s++)
+            classes[s] = b.blockOf[components.componentOf(s)];
+        return classes;
+    }
+
+    private void refine() {
+        stabilize();
+        while (compoundCount > 0) {
+            int c = compoundStack[--compoundCount];
+            compound[c] = false;
+            int b = firstBlock[c], b2 = nextBlock[b];
+            if (blockSize[b2] < blockSize[b])
+                b = b2;
+            moveToNewConstellation(b);
+            if (blockCount[c] > 1)
+                pushCompound(c);
+            splitByConstellation(b, c, constellationOf[b]);
+            stabilize();
+        }
+    }
+
+    /**
+     * Restores the stability of all blocks after block b was moved from constellation c to the new constellation d,
+     * except for blocks with new bottom states
+     */
+    private void splitByConstellation(int b, int c, int d) {
+        //move the counters of the transitions into b to the new constellation, per state and action
+        int r = ++round, touchedCount = 0, actionCount = 0;
+        for (int q = firstState[b]; q >= 0; q = nextState[q]) {
+            for (int j = inFirst[q]; j < inFirst[q + 1]; j++) {
+                int t = incoming[j], s = sources[t], a = lts.outAction(t), k = counterOf[t];
+                if (counterStamp[k] != r) {
+                    counterStamp[k] = r;
+                    //newCounter may grow the arrays, so replacement is only indexed after the call
+                    int copy = newCounter(s);
+                    replacement[k] = copy;
+                    original[copy] = k;
+                    touched[touchedCount] = k;
+                    //group the touched counters by action
+                    if (actionStamp[a] != r) {
+                        actionStamp[a] = r;
+                        actionFirst[a] = -1;
+                        touchedActions[actionCount++] = a;
+                    }
+                    touchedNext[touchedCount] = actionFirst[a];
+                    actionFirst[a] = touchedCount++;
+                }
+                //τ transitions from c into b were ignored so far, and those within b still are
+                int e = constellationOf[blockOf[s]];
+                if ((a != tau || e != c && e != d) && --count[k] == 0)
+                    listSize[listOf[k]]--;
+                if (a != tau || e != d)
+                    count[replacement[k]]++;
+                references[k]--;
+                references[replacement[k]]++;
+                counterOf[t] = replacement[k];
+            }
+        }
+        //the counters that dropped to zero stay in their lists until the blocks are split, to find those lists there
+        for (int x = 0; x < actionCount; x++) {
+            int g = ++round;
+            for (int i = actionFirst[touchedActions[x]]; i >= 0; i = touchedNext[i]) {
+                int k = replacement[touched[i]], e = blockOf[stateOf[k]];
+                if (count[k] == 0)
+                    continue;
+                if (blockListStamp[e] != g) {
+                    blockListStamp[e] = g;
+                    blockList[e] = newList(e);
+                }
+                insert(k, blockList[e]);
+            }
+        }
+
+        //the τ transitions from b into the rest of c are not ignored anymore
+        int rest = -1;
+        for (int s = firstState[b]; s >= 0; s = nextState[s]) {
+            for (int i = lts.outStart(s); i < lts.outEnd(s); i++) {
+                int k = counterOf[i];
+                if (lts.outAction(i) == tau && constellationOf[blockOf[lts.outTarget(i)]] == c && count[k]++ == 0) {
+                    if (rest < 0)
+                        rest = newList(b);
+                    insert(k, rest);
+                }
+            }
+        }
+        if (rest >= 0) {
+            int m = ++round, bottoms = 0;
+            for (int k = firstInList[rest]; k >= 0; k = nextInList[k]) {
+                mark[stateOf[k]] = m;
+                if (inertCount[stateOf[k]] == 0)
+                    bottoms++;
+            }
+            if (bottoms < bottomCount[b])
+                split(b, rest, bottomCount[b], m);
+        }
+
+        //split by whether a state can reach b, and then by whether it can reach the rest of c
+        for (int x = 0; x < actionCount; x++) {
+            int g = ++round, groupCount = 0;
+            for (int i = actionFirst[touchedActions[x]]; i >= 0; i = touchedNext[i]) {
+                int e = blockOf[stateOf[touched[i]]];
+                if (groupStamp[e] != g) {
+                    groupStamp[e] = g;
+                    groupFirst[e] = -1;
+                    groupBlocks[groupCount++] = e;
+                }
+                groupNext[i] = groupFirst[e];
+                groupFirst[e] = i;
+            }
+            for (int y = 0; y < groupCount; y++)
+                splitGroup(groupBlocks[y], groupFirst[groupBlocks[y]], touchedActions[x] == tau, c);
+        }
+
+        for (int i = 0; i < touchedCount; i++) {
+            int k = touched[i], l = listOf[k];
+            original[replacement[k]] = -1;
+            if (count[k] == 0 && l >= 0) {
+                unlink(k);
+                if (isNew[stateOf[k]])
+                    newInList[l]--;
+                if (firstInList[l] < 0)
+                    freeList(l);
+            }
+            if (references[k] == 0)
+                freeCounters[freeCounterCount++] = k;
+        }
+    }
+
+    /**
+     * Splits block e by the touched counters from first on, which all belong to states of e and the same action
+     */
+    private void splitGroup(int e, int first, boolean isTau, int c) {
+        int b = replacement[touched[first]];
+        if (count[b] == 0)
+            return;
+        int m = ++round, bottoms = 0;
+        for (int i = first; i >= 0; i = groupNext[i]) {
+            int s = stateOf[touched[i]];
+            mark[s] = m;
+            if (inertCount[s] == 0)
+                bottoms++;
+        }
+        //all bottom states of the part that can reach b have such a transition themselves
+        if (bottoms < bottomCount[e])
+            e = split(e, listOf[b], bottomCount[e], m);
+        if (isTau && constellationOf[e] == c)
+            return;
+        int rest = listOf[touched[first]];
+        if (listSize[rest] == 0)
+            return;
+        m = ++round;
+        boolean missing = false;
+        for (int i = first; i >= 0; i = groupNext[i]) {
+            int k = touched[i];
+            if (count[k] > 0)
+                mark[stateOf[k]] = m;
+            else if (inertCount[stateOf[k]] == 0)
+                missing = true;
+        }
+        if (missing)
+            split(e, rest, bottomCount[e], m);
+    }
+
+    /**
+     * Splits the blocks with new bottom states until all their bottom states are in each of their lists, and then
+     * makes these bottom states old
+     */
+    private void stabilize() {
+        while (uncheckedCount > 0) {
+            int b = uncheckedStack[--uncheckedCount];
+            unchecked[b] = false;
+            derivedCount = 0;
+            derived[derivedCount++] = b;
+            for (int l = firstList[b]; l >= 0; l = nextList[l])
+                if (newInList[l] < newCount[b])
+                    queue(l);
+            while (queueCount > 0) {
+                int l = listQueue[--queueCount];
+                if (!queued[l])
+                    continue;
+                queued[l] = false;
+                int e = blockOfList[l];
+                if (newInList[l] == newCount[e])
+                    continue;
+                int m = ++round;
+                for (int k = firstInList[l], i = 0; i < newInList[l]; k = nextInList[k], i++)
+                    mark[stateOf[k]] = m;
+                split(e, l, newCount[e], m);
+            }
+            //the parts without newer bottom states are stable now
+            for (int i = 0; i < derivedCount; i++)
+                if (!unchecked[derived[i]])
+                    makeOld(derived[i]);
+        }
+    }
+
+    /**
+     * Splits block b into the states that reach a counter of list l inertly and the others. The bottom states of b
+     * that are not in l must be among its first bottomLimit bottom states, and the others among them must be marked.
+     * @return the block of the states that reach l
+     */
+    private int split(int b, int l, int bottomLimit, int marked) {
+        search++;
+        reaching.start(b, l);
+        avoiding.start(b, l, bottomLimit, marked);
+        while (true) {
+            if (reaching.step())
+                return moveOff(b, reaching.found, reaching.size);
+            if (avoiding.step()) {
+                moveOff(b, avoiding.found, avoiding.size);
+                return b;
+            }
+        }
+    }
+
+    /**
+     * A search backwards along the inert transitions of a block, taken one step at a time to run two searches in
+     * lockstep. Each step looks at one transition or seed, and each state found costs as many steps as it has outgoing
+     * transitions, to pay for moving it to a new block.
+     */
+    private abstract class Search {
+        final int[] found;
+        int size, block;
+        private int next, edge, end, debt;
+
+        Search(int n) {
+            found = new int[n];
+        }
+
+        void start(int block) {
+            this.block = block;
+            size = next = edge = end = debt = 0;
+        }
+
+        /**
+         * @return whether the search is complete
+         */
+        boolean step() {
+            if (debt > 0) {
+                debt--;
+            } else if (edge < end) {
+                int t = incoming[edge++];
+                if (lts.outAction(t) == tau && blockOf[sources[t]] == block)
+                    visit(sources[t]);
+            } else if (next < size) {
+                int s = found[next++];
+                edge = inFirst[s];
+                end = inFirst[s + 1];
+            } else {
+                return !seed();
+            }
+            return false;
+        }
+
+        void add(int s) {
+            found[size++] = s;
+            pay(s);
+        }
+
+        void pay(int s) {
+            debt += lts.outEnd(s) - lts.outStart(s);
+        }
+
+        /**
+         * Visits a state with an inert transition to a found state
+         */
+        abstract void visit(int p);
+
+        /**
+         * Adds the next state to start from
+         * @return false if there are no more
+         */
+        abstract boolean seed();
+    }
+
+    /**
+     * Finds the states that reach a counter of a list
+     */
+    private final class Reaching extends Search {
+        private int nextSeed;
+
+        Reaching(int n) {
+            super(n);
+        }
+
+        void start(int block, int list) {
+            start(block);
+            nextSeed = firstInList[list];
+        }
+
+        @Override
+        void visit(int p) {
+            if (reached[p] != search) {
+                reached[p] = search;
+                add(p);
+            }
+        }
+
+        @Override
+        boolean seed() {
+            if (nextSeed < 0)
+                return false;
+            int k = nextSeed;
+            nextSeed = nextInList[k];
+            if (count[k] > 0)
+                visit(stateOf[k]);
+            return true;
+        }
+    }
+
+    /**
+     * Finds the states that do not reach a counter of a list: the bottom states outside of the list, and the states
+     * outside of the list whose inert transitions all lead to states found before
+     */
+    private final class Avoiding extends Search {
+        private int list, marked, nextSeed, seedsLeft;
+
+        Avoiding(int n) {
+            super(n);
+        }
+
+        void start(int block, int list, int bottomLimit, int marked) {
+            start(block);
+            this.list = list;
+            this.marked = marked;
+            nextSeed = firstBottom[block];
+            seedsLeft = bottomLimit;
+        }
+
+        @Override
+        void visit(int p) {
+            if (remainingStamp[p] != search) {
+                remainingStamp[p] = search;
+                remaining[p] = inertCount[p];
+            }
+            if (--remaining[p] == 0) {
+                pay(p);
+                if (mark[p] != marked && !inList(p, list))
+                    add(p);
+            }
+        }
+
+        @Override
+        boolean seed() {
+            if (seedsLeft == 0)
+                return false;
+            int s = nextSeed;
+            nextSeed = nextBottom[s];
+            seedsLeft--;
+            if (mark[s] != marked)
+                add(s);
+            return true;
+        }
+    }
+
+    private boolean inList(int s, int l) {
+        for (int i = lts.outStart(s); i < lts.outEnd(s); i++)
+            if (listOf[counterOf[i]] == l && count[counterOf[i]] > 0)
+                return true;
+        return false;
+    }
+
+    /**
+     * Moves some states of block b to a new block, along with their bottom states and counters
+     * @return the new block
+     */
+    private int moveOff(int b, int[] states, int size) {
+        int z = blocks++;
+        firstState[z] = firstBottom[z] = lastBottom[z] = firstList[z] = -1;
+        int r = ++round;
+        emptied = 0;
+        for (int i = 0; i < size; i++) {
+            int s = states[i];
+            if (previousState[s] >= 0)
+                nextState[previousState[s]] = nextState[s];
+            else
+                firstState[b] = nextState[s];
+            if (nextState[s] >= 0)
+                previousState[nextState[s]] = previousState[s];
+            previousState[s] = -1;
+            nextState[s] = firstState[z];
+            if (firstState[z] >= 0)
+                previousState[firstState[z]] = s;
+            firstState[z] = s;
+            blockOf[s] = z;
+            if (inertCount[s] == 0) {
+                removeBottom(b, s);
+                addBottom(z, s);
+            }
+            for (int j = lts.outStart(s); j < lts.outEnd(s); j++) {
+                int k = counterOf[j];
+                moveCounter(k, b, z, r);
+                if (original[k] >= 0)
+                    moveCounter(original[k], b, z, r);
+            }
+        }
+        blockSize[b] -= size;
+        blockSize[z] = size;
+        addBlock(constellationOf[b], z);
+        if (blockCount[constellationOf[b]] == 2)
+            pushCompound(constellationOf[b]);
+        if (unchecked[b] && newCount[z] > 0)
+            pushUnchecked(z);
+        derived[derivedCount++] = z;
+
+        //the τ transitions between the two parts are not inert anymore
+        for (int i = 0; i < size; i++) {
+            int s = states[i];
+            for (int j = lts.outStart(s); j < lts.outEnd(s); j++)
+                if (lts.outAction(j) == tau && blockOf[lts.outTarget(j)] == b && --inertCount[s] == 0)
+                    makeBottom(s);
+            for (int j = inFirst[s]; j < inFirst[s + 1]; j++) {
+                int t = incoming[j], p = sources[t];
+                if (lts.outAction(t) == tau && blockOf[p] == b && --inertCount[p] == 0)
+                    makeBottom(p);
+            }
+        }
+        for (int i = 0; i < emptied; i++)
+            freeList(emptiedLists[i]);
+        return z;
+    }
+
+    /**
+     * Moves counter k of a state that moved from block b to block z into the copy of its list for z, where each list of b
+     * gets one copy per round r
+     */
+    private void moveCounter(int k, int b, int z, int r) {
+        int l = listOf[k], s = stateOf[k];
+        if (l < 0 || blockOfList[l] != b)
+            return;
+        if (listStamp[l] != r) {
+            listStamp[l] = r;
+            int copy = newList(z);
+            listReplacement[l] = copy;
+            if (queued[l])
+                queue(copy);
+        }
+        int l2 = listReplacement[l];
+        unlink(k);
+        link(k, l2, isNew[s]);
+        if (isNew[s]) {
+            newInList[l]--;
+            newInList[l2]++;
+        }
+        if (count[k] > 0) {
+            listSize[l]--;
+            listSize[l2]++;
+        }
+        if (firstInList[l] < 0) {
+            if (emptied == emptiedLists.length)
+                emptiedLists = Arrays.copyOf(emptiedLists, 2 * emptied);
+            emptiedLists[emptied++] = l;
+        }
+    }
+
+    private void addBottom(int b, int s) {
+        if (isNew[s]) {
+            previousBottom[s] = -1;
+            nextBottom[s] = firstBottom[b];
+            if (firstBottom[b] >= 0)
+                previousBottom[firstBottom[b]] = s;
+            else
+                lastBottom[b] = s;
+            firstBottom[b] = s;
+            newCount[b]++;
+        } else {
+            nextBottom[s] = -1;
+            previousBottom[s] = lastBottom[b];
+            if (lastBottom[b] >= 0)
+                nextBottom[lastBottom[b]] = s;
+            else
+                firstBottom[b] = s;
+            lastBottom[b] = s;
+        }
+        bottomCount[b]++;
+    }
+
+    private void removeBottom(int b, int s) {
+        if (previousBottom[s] >= 0)
+            nextBottom[previousBottom[s]] = nextBottom[s];
+        else
+            firstBottom[b] = nextBottom[s];
+        if (nextBottom[s] >= 0)
+            previousBottom[nextBottom[s]] = previousBottom[s];
+        else
+            lastBottom[b] = previousBottom[s];
+        bottomCount[b]--;
+        if (isNew[s])
+            newCount[b]--;
+    }
+
+    /**
+     * Makes s a new bottom state, after its last inert transition became non-inert
+     */
+    private void makeBottom(int s) {
+        int b = blockOf[s], r = ++round;
+        isNew[s] = true;
+        addBottom(b, s);
+        for (int i = lts.outStart(s); i < lts.outEnd(s); i++) {
+            int k = counterOf[i];
+            toFront(k, r);
+            if (original[k] >= 0)
+                toFront(original[k], r);
+        }
+        pushUnchecked(b);
+    }
+
+    /**
+     * Moves counter k of a new bottom state to the front of its list, once per round r
+     */
+    private void toFront(int k, int r) {
+        int l = listOf[k];
+        if (l >= 0 && counterStamp[k] != r) {
+            counterStamp[k] = r;
+            unlink(k);
+            link(k, l, true);
+            newInList[l]++;
+        }
+    }
+
+    /**
+     * Makes the new bottom states of block b old, once b is stable with respect to them
+     */
+    private void makeOld(int b) {
+        int r = ++round;
+        for (int s = firstBottom[b], i = 0; i < newCount[b]; s = nextBottom[s], i++) {
+            isNew[s] = false;
+            for (int j = lts.outStart(s); j < lts.outEnd(s); j++) {
+                int k = counterOf[j], l = listOf[k];
+                if (l >= 0 && counterStamp[k] != r) {
+                    counterStamp[k] = r;
+                    unlink(k);
+                    link(k, l, false);
+                    newInList[l]--;
+                }
+            }
+        }
+        newCount[b] = 0;
+    }
+
+    private void pushUnchecked(int b) {
+        if (!unchecked[b]) {
+            unchecked[b] = true;
+            uncheckedStack[uncheckedCount++] = b;
+        }
+    }
+
+    /**
+     * Adds counter k with a non-zero count to list l
+     */
+    private void insert(int k, int l) {
+        link(k, l, isNew[stateOf[k]]);
+        if (isNew[stateOf[k]])
+            newInList[l]++;
+        listSize[l]++;
+    }
+
+    /**
+     * Links counter k into list l, at the front if it belongs to a new bottom state
+     */
+    private void link(int k, int l, boolean front) {
+        listOf[k] = l;
+        if (front) {
+            previousInList[k] = -1;
+            nextInList[k] = firstInList[l];
+            if (firstInList[l] >= 0)
+                previousInList[firstInList[l]] = k;
+            else
+                lastInList[l] = k;
+            firstInList[l] = k;
+        } else {
+            nextInList[k] = -1;
+            previousInList[k] = lastInList[l];
+            if (lastInList[l] >= 0)
+                nextInList[lastInList[l]] = k;
+            else
+                firstInList[l] = k;
+            lastInList[l] = k;
+        }
+    }
+
+    /**
+     * Removes counter k from its list, without updating the sizes of the list
+     */
+    private void unlink(int k) {
+        int l = listOf[k];
+        if (previousInList[k] >= 0)
+            nextInList[previousInList[k]] = nextInList[k];
+        else
+            firstInList[l] = nextInList[k];
+        if (nextInList[k] >= 0)
+            previousInList[nextInList[k]] = previousInList[k];
+        else
+            lastInList[l] = previousInList[k];
+        listOf[k] = -1;
+    }
+
+    private void queue(int l) {
+        queued[l] = true;
+        if (queueCount == listQueue.length)
+            listQueue = Arrays.copyOf(listQueue, 2 * queueCount);
+        listQueue[queueCount++] = l;
+    }
+
+    private int newList(int b) {
+        int l;
+        if (freeListCount > 0) {
+            l = freeLists[--freeListCount];
+        } else {
+            if (lists == blockOfList.length) {
+                int capacity = 2 * lists;
+                blockOfList = Arrays.copyOf(blockOfList, capacity);
+                firstInList = Arrays.copyOf(firstInList, capacity);
+                lastInList = Arrays.copyOf(lastInList, capacity);
+                listSize = Arrays.copyOf(listSize, capacity);
+                newInList = Arrays.copyOf(newInList, capacity);
+                nextList = Arrays.copyOf(nextList, capacity);
+                previousList = Arrays.copyOf(previousList, capacity);
+                listStamp = Arrays.copyOf(listStamp, capacity);
+                listReplacement = Arrays.copyOf(listReplacement, capacity);
+                queued = Arrays.copyOf(queued, capacity);
+                freeLists = Arrays.copyOf(freeLists, capacity);
+            }
+            l = lists++;
+        }
+        blockOfList[l] = b;
+        firstInList[l] = lastInList[l] = -1;
+        listSize[l] = newInList[l] = listStamp[l] = 0;
+        queued[l] = false;
+        previousList[l] = -1;
+        nextList[l] = firstList[b];
+        if (firstList[b] >= 0)
+            previousList[firstList[b]] = l;
+        firstList[b] = l;
+        return l;
+    }
+
+    private void freeList(int l) {
+        int b = blockOfList[l];
+        if (previousList[l] >= 0)
+            nextList[previousList[l]] = nextList[l];
+        else
+            firstList[b] = nextList[l];
+        if (nextList[l] >= 0)
+            previousList[nextList[l]] = previousList[l];
+        blockOfList[l] = -1;
+        queued[l] = false;
+        freeLists[freeListCount++] = l;
+    }
+
+    private int newCounter(int s) {
+        int k;
+        if (freeCounterCount > 0) {
+            k = freeCounters[--freeCounterCount];
+        } else {
+            if (counters == count.length) {
+                int capacity = 2 * counters;
+                count = Arrays.copyOf(count, capacity);
+                references = Arrays.copyOf(references, capacity);
+                stateOf = Arrays.copyOf(stateOf, capacity);
+                listOf = Arrays.copyOf(listOf, capacity);
+                nextInList = Arrays.copyOf(nextInList, capacity);
+                previousInList = Arrays.copyOf(previousInList, capacity);
+                counterStamp = Arrays.copyOf(counterStamp, capacity);
+                replacement = Arrays.copyOf(replacement, capacity);
+                original = Arrays.copyOf(original, capacity);
+                freeCounters = Arrays.copyOf(freeCounters, capacity);
+            }
+            k = counters++;
+        }
+        count[k] = references[k] = counterStamp[k] = 0;
+        stateOf[k] = s;
+        listOf[k] = original[k] = -1;
+        return k;
+    }
+
+    private void moveToNewConstellation(int b) {
+        int c = constellationOf[b];
+        if (previousBlock[b] >= 0)
+            nextBlock[previousBlock[b]] = nextBlock[b];
+        else
+            firstBlock[c] = nextBlock[b];
+        if (nextBlock[b] >= 0)
+            previousBlock[nextBlock[b]] = previousBlock[b];
+        blockCount[c]--;
+        nextBlock[b] = previousBlock[b] = -1;
+        addBlock(constellations++, b);
+    }
+
+    private void addBlock(int c, int b) {
+        constellationOf[b] = c;
+        previousBlock[b] = -1;
+        if (blockCount[c]++ > 0) {
+            nextBlock[b] = firstBlock[c];
+            previousBlock[firstBlock[c]] = b;
+        } else {
+            nextBlock[b] = -1;
+        }
+        firstBlock[c] = b;
+    }
+
+    private void pushCompound(int c) {
+        if (!compound[c]) {
+            compound[c] = true;
+            compoundStack[compoundCount++] = c;
+        }
+    }
+}
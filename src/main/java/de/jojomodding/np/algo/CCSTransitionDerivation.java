@@ -1,40 +1,83 @@
 package de.jojomodding.np.algo;
 
+import de.jojomodding.np.Factory;
 import de.jojomodding.np.ccs.expr.Binding;
 import de.jojomodding.np.ccs.expr.CCSExpression;
+import de.jojomodding.np.ccs.expr.Choice;
+import de.jojomodding.np.ccs.expr.Parallel;
+import de.jojomodding.np.ccs.expr.Restrict;
+import de.jojomodding.np.ccs.expr.Stop;
+import de.jojomodding.np.ccs.expr.TransitionSet;
+import de.jojomodding.np.ccs.expr.TransitionSink;
 import de.jojomodding.np.ccs.expr.Variable;
 import de.jojomodding.np.lts.Action;
 import de.jojomodding.np.lts.LTS;
 import de.jojomodding.np.lts.Walk;
+import de.jojomodding.np.util.BoundedCache;
 import de.jojomodding.np.util.Pair;
 import de.jojomodding.np.util.Utils;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
- * Derives LTSs from CCS bindings
+ * Derives LTSs from CCS bindings.
+ * A deriver can be shared by multiple threads, which then share its caches.
  */
 public class CCSTransitionDerivation {
 
     private final Binding binding;
-    private final Map<String, Set<Pair<Action, CCSExpression>>> derivations;
-    private final Map<CCSExpression, Set<Pair<Action, CCSExpression>>> cachedDerivations;
+    //an immutable snapshot that is only replaced under derivationLock, and always contains every variable that a
+    //variable in it can reach
+    private volatile Map<String, TransitionSet> derivations;
+    private final Object derivationLock = new Object();
+    private final BoundedCache<CCSExpression, Set<Pair<Action, CCSExpression>>> cachedDerivations;
+    private final Function<String, TransitionSet> variableDerivations;
 
     /**
-     * Constructs a new deriver that derives expressions in a given context
+     * Constructs a new deriver that derives expressions in a given context, and caches all derived expressions
      * @param b the context
      */
     public CCSTransitionDerivation(Binding b) {
+        this(b, BoundedCache.unbounded());
+    }
+
+    /**
+     * Constructs a new deriver that derives expressions in a given context.
+     * The derivations of variables are always kept, only the derivations of other expressions are cached.
+     * @param b the context
+     * @param cache where derived expressions are cached
+     */
+    public CCSTransitionDerivation(Binding b, BoundedCache<CCSExpression, Set<Pair<Action, CCSExpression>>> cache) {
         this.binding = b;
-        this.derivations = new HashMap<>();
-        this.cachedDerivations = new HashMap<>();
+        this.derivations = Map.of();
+        this.cachedDerivations = cache;
+        this.variableDerivations = e -> derivations.getOrDefault(e, TransitionSet.empty());
+    }
+
+    /**
+     * Returns the cache of derived expressions, e.g. to inspect its statistics
+     */
+    public BoundedCache<CCSExpression, Set<Pair<Action, CCSExpression>>> getCache() {
+        return cachedDerivations;
     }
 
     /**
@@ -43,39 +86,241 @@ public class CCSTransitionDerivation {
      * @return the derived transitions
      */
     public Set<Pair<Action, CCSExpression>> derive(CCSExpression expr) {
-        if (!cachedDerivations.containsKey(expr)) {
-            deriveInternal(expr);
+        return cachedDerivations.computeIfAbsent(expr, this::deriveInternal);
+    }
+
+    /**
+     * Derives the action-sucessor-pairs for a single expression and passes them to a sink, without collecting or caching
+     * them. The sink may receive a pair more than once.
+     * @param expr the expression
+     * @param sink receives the derived transitions
+     */
+    public void derive(CCSExpression expr, TransitionSink sink) {
+        deriveVariablesOf(expr);
+        expr.deriveTransitions(variableDerivations, sink);
+    }
+
+    private Set<Pair<Action, CCSExpression>> deriveInternal(CCSExpression base) {
+        deriveVariablesOf(base);
+        return base.deriveTransitions(variableDerivations);
+    }
+
+    /**
+     * Makes sure all variables the expression can ever reach are derived
+     */
+    private void deriveVariablesOf(CCSExpression base) {
+        Set<String> used = base.usedVariables();
+        //each snapshot is closed under reachability, so if it contains the used variables, it contains all reachable ones
+        if (!derivations.keySet().containsAll(used)) {
+            synchronized (derivationLock) {
+                deriveVariables(used);
+            }
         }
-        return cachedDerivations.get(expr);
-    }
-
-    private void deriveInternal(CCSExpression base) {
-        Set<String> targetVariables = new HashSet<>(base.usedVariables());
-        int card;
-        do {
-            card = targetVariables.size();
-            targetVariables.addAll(targetVariables.stream().flatMap(s -> binding.lookup(s).map(CCSExpression::usedVariables).orElse(Set.of()).stream()).collect(Collectors.toSet()));
-        } while (card < targetVariables.size());
-        targetVariables.removeIf(derivations::containsKey);
-        Map<String, Set<Pair<Action, CCSExpression>>> partialDerivations = new HashMap<>(), oldPDs, pdf1 = partialDerivations;
-        targetVariables.forEach(e -> pdf1.put(e, new HashSet<>()));
-
-        do {
-            oldPDs = partialDerivations;
-            partialDerivations = new HashMap<>();
-            for (String var : targetVariables) {
-                partialDerivations.put(var, binding.lookup(var).orElseGet(() -> new Variable(var)).deriveTransitions(
-                        Utils.fallingBackTo(
-                                Set.of(),
-                                Utils.asPartialFunction(derivations),
-                                Utils.asPartialFunction(oldPDs)
-                        )
-                ));
+    }
+
+    /**
+     * Over-approximates the actions an expression and all expressions reachable from it can ever perform, by
+     * collecting the actions used by it and by the bodies of all variables it can reach
+     * @param expr the expression
+     * @return a superset of all actions of all reachable transitions
+     */
+    public Set<Action> getAlphabet(CCSExpression expr) {
+        Set<Action> alphabet = new HashSet<>(expr.usedActions());
+        Set<String> visited = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(expr.usedVariables());
+        while (!pending.isEmpty()) {
+            String var = pending.pop();
+            if (!visited.add(var))
+                continue;
+            CCSExpression body = body(var);
+            alphabet.addAll(body.usedActions());
+            pending.addAll(body.usedVariables());
+        }
+        return alphabet;
+    }
+
+    private CCSExpression body(String var) {
+        return binding.lookup(var).orElseGet(() -> Factory.var(var));
+    }
+
+    /**
+     * Derives all variables reachable from the given ones that have not been derived yet.
+     * Uses Tarjan's algorithm on the dependency graph of the variables, which completes each strongly connected
+     * component after all components it depends on. Each component can thus be derived on its own.
+     * The new derivations are published all at once when every reachable variable is derived.
+     */
+    private void deriveVariables(Set<String> roots) {
+        Map<String, TransitionSet> derived = new HashMap<>(derivations);
+        Map<String, Integer> index = new HashMap<>(), lowlink = new HashMap<>();
+        Deque<String> componentStack = new ArrayDeque<>();
+        Set<String> onStack = new HashSet<>();
+        //the explicit call stack: a variable together with its remaining dependencies
+        Deque<Pair<String, Iterator<String>>> callStack = new ArrayDeque<>();
+        for (String root : roots) {
+            if (derived.containsKey(root) || index.containsKey(root))
+                continue;
+            index.put(root, index.size());
+            lowlink.put(root, index.get(root));
+            componentStack.push(root);
+            onStack.add(root);
+            callStack.push(new Pair<>(root, body(root).usedVariables().iterator()));
+            while (!callStack.isEmpty()) {
+                String v = callStack.peek().first();
+                Iterator<String> deps = callStack.peek().second();
+                if (deps.hasNext()) {
+                    String w = deps.next();
+                    if (derived.containsKey(w))
+                        continue;
+                    if (!index.containsKey(w)) {
+                        index.put(w, index.size());
+                        lowlink.put(w, index.get(w));
+                        componentStack.push(w);
+                        onStack.add(w);
+                        callStack.push(new Pair<>(w, body(w).usedVariables().iterator()));
+                    } else if (onStack.contains(w)) {
+                        lowlink.put(v, Math.min(lowlink.get(v), index.get(w)));
+                    }
+                    continue;
+                }
+                callStack.pop();
+                if (!callStack.isEmpty()) {
+                    String u = callStack.peek().first();
+                    lowlink.put(u, Math.min(lowlink.get(u), lowlink.get(v)));
+                }
+                if (lowlink.get(v).equals(index.get(v))) {
+                    List<String> component = new ArrayList<>();
+                    String w;
+                    do {
+                        w = componentStack.pop();
+                        onStack.remove(w);
+                        component.add(w);
+                    } while (!w.equals(v));
+                    deriveComponent(component, derived);
+                }
+            }
+        }
+        if (derived.size() != derivations.size())
+            derivations = Collections.unmodifiableMap(derived);
+    }
+
+    /**
+     * Computes the least fixpoint for a strongly connected component of variables, all of whose dependencies outside
+     * the component are already derived. Only variables one of whose dependencies changed are derived again.
+     * @param known the derivations so far, to which those of the component are added
+     */
+    private void deriveComponent(List<String> component, Map<String, TransitionSet> known) {
+        Map<String, TransitionSet> partialDerivations = new HashMap<>();
+        component.forEach(v -> partialDerivations.put(v, TransitionSet.empty()));
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (String v : component)
+            for (String w : body(v).usedVariables())
+                if (partialDerivations.containsKey(w))
+                    dependents.computeIfAbsent(w, $ -> new ArrayList<>()).add(v);
+        Function<String, TransitionSet> env = Utils.fallingBackTo(
+                TransitionSet.empty(),
+                Utils.asPartialFunction(known),
+                Utils.asPartialFunction(partialDerivations)
+        );
+        Deque<String> worklist = new ArrayDeque<>(component);
+        Set<String> queued = new HashSet<>(component);
+        while (!worklist.isEmpty()) {
+            String v = worklist.poll();
+            queued.remove(v);
+            TransitionSet derived = body(v).deriveTransitions(env);
+            //derivation is monotone and we start from the empty sets, so derivations only ever grow
+            if (derived.size() != partialDerivations.get(v).size()) {
+                partialDerivations.put(v, derived);
+                for (String w : dependents.getOrDefault(v, List.of()))
+                    if (queued.add(w))
+                        worklist.add(w);
+            }
+        }
+        known.putAll(partialDerivations);
+    }
+
+    /**
+     * Receives the transitions of explored states
+     */
+    @FunctionalInterface
+    public interface TransitionConsumer {
+        void accept(CCSExpression source, Action a, CCSExpression target);
+    }
+
+    /**
+     * The states an exploration explored, and those it discovered but did not explore because of a limit
+     */
+    private static final class Exploration {
+        private final List<CCSExpression> explored = new ArrayList<>();
+        private final List<CCSExpression> frontier = new ArrayList<>();
+        private ExplorationResult.Limit limitReached;
+    }
+
+    /**
+     * Explores the reachable fragment, deriving each state at most once. The explored states are not cached.
+     * The limits are checked before each state is explored, so at most the maximal number of states are explored, but
+     * the transition limit may be exceeded by the successors of a single state. An exploration that runs out of states
+     * before reaching a limit is complete.
+     * @param base the expression from where to start exploring
+     * @param order the order in which discovered states are explored
+     * @param options the limits of the exploration
+     * @param onTransition called for each transition of each explored state, possibly more than once
+     * @return the states in the order in which they were explored, and the unexplored ones
+     */
+    private Exploration explore(CCSExpression base, SearchOrder order, ExplorationOptions options, TransitionConsumer onTransition) {
+        //all states reachable from base only use variables base can reach
+        deriveVariablesOf(base);
+        Exploration exploration = new Exploration();
+        //the depth at which each state was discovered, which is only tracked if it is limited
+        boolean trackDepth = options.getMaxDepth() != Integer.MAX_VALUE;
+        Map<CCSExpression, Integer> discovered = new HashMap<>();
+        Deque<CCSExpression> frontier = new ArrayDeque<>();
+        long[] transitions = new long[1];
+        Consumer<ExplorationProgress> progressListener = options.getProgressListener();
+        boolean timed = options.getTimeLimit() != null || progressListener != null;
+        long start = timed ? System.nanoTime() : 0;
+        long deadline = options.getTimeLimit() != null ? start + options.getTimeLimit().toNanos() : 0;
+        long nextReport = start + options.getProgressInterval().toNanos();
+        discovered.put(base, 0);
+        frontier.add(base);
+        while (!frontier.isEmpty()) {
+            if (exploration.explored.size() >= options.getMaxStates()) {
+                exploration.limitReached = ExplorationResult.Limit.STATES;
+                break;
+            }
+            if (transitions[0] >= options.getMaxTransitions()) {
+                exploration.limitReached = ExplorationResult.Limit.TRANSITIONS;
+                break;
             }
-        } while (!partialDerivations.equals(oldPDs));
-        partialDerivations.forEach(derivations::put);
-        partialDerivations.forEach((k, v) -> cachedDerivations.put(new Variable(k), v));
-        cachedDerivations.put(base, base.deriveTransitions(e -> derivations.getOrDefault(e, Set.of())));
+            if (timed) {
+                long now = System.nanoTime();
+                if (options.getTimeLimit() != null && now - deadline >= 0) {
+                    exploration.limitReached = ExplorationResult.Limit.TIME;
+                    break;
+                }
+                if (progressListener != null && now - nextReport >= 0) {
+                    Runtime rt = Runtime.getRuntime();
+                    progressListener.accept(new ExplorationProgress(exploration.explored.size(), frontier.size(), transitions[0],
+                                                                    Duration.ofNanos(now - start), rt.totalMemory() - rt.freeMemory()));
+                    nextReport = now + options.getProgressInterval().toNanos();
+                }
+            }
+            CCSExpression state = order == SearchOrder.BREADTH_FIRST ? frontier.pollFirst() : frontier.pollLast();
+            int depth = trackDepth ? discovered.get(state) : 0;
+            if (depth >= options.getMaxDepth()) {
+                exploration.frontier.add(state);
+                exploration.limitReached = ExplorationResult.Limit.DEPTH;
+                continue;
+            }
+            exploration.explored.add(state);
+            state.deriveTransitions(variableDerivations, (a, t) -> {
+                transitions[0]++;
+                onTransition.accept(state, a, t);
+                if (discovered.putIfAbsent(t, depth + 1) == null)
+                    frontier.add(t);
+            });
+        }
+        exploration.frontier.addAll(frontier);
+        return exploration;
     }
 
     /**
@@ -84,13 +329,19 @@ public class CCSTransitionDerivation {
      * @return the reachable fragment
      */
     public Set<Pair<CCSExpression, Pair<Action, CCSExpression>>> deriveAllReachable(CCSExpression base) {
-        Set<CCSExpression> reachableFragment = new HashSet<>(), oldReachableFragment;
-        reachableFragment.add(base);
-        do {
-            oldReachableFragment = new HashSet<>(reachableFragment);
-            oldReachableFragment.stream().flatMap(p -> derive(p).stream().map(Pair::second)).forEach(reachableFragment::add);
-        } while (reachableFragment.size() != oldReachableFragment.size());
-        return reachableFragment.stream().flatMap(p -> derive(p).stream().map(v -> new Pair<>(p, v))).collect(Collectors.toSet());
+        return deriveAllReachable(base, SearchOrder.BREADTH_FIRST);
+    }
+
+    /**
+     * Given an expressions, derives all transitions in the reachable fragment
+     * @param base the expression from where to start deriving
+     * @param order the order in which the fragment is explored
+     * @return the reachable fragment
+     */
+    public Set<Pair<CCSExpression, Pair<Action, CCSExpression>>> deriveAllReachable(CCSExpression base, SearchOrder order) {
+        Set<Pair<CCSExpression, Pair<Action, CCSExpression>>> reachableFragment = new HashSet<>();
+        explore(base, order, ExplorationOptions.unlimited(), (s, a, t) -> reachableFragment.add(new Pair<>(s, new Pair<>(a, t))));
+        return reachableFragment;
     }
 
     /**
@@ -99,7 +350,252 @@ public class CCSTransitionDerivation {
      * @return the LTS generated by the expression
      */
     public LTS<CCSExpression> getReachableLTS(CCSExpression base) {
-        return new LTS<>(deriveAllReachable(base), base);
+        return getReachableLTS(base, SearchOrder.BREADTH_FIRST);
+    }
+
+    /**
+     * Derives the minimal LTS isomorphic to the canonical LTS represented by a given expression in the context
+     * @param base the expression
+     * @param order the order in which the states are explored, which is also the order of the states of the LTS
+     * @return the LTS generated by the expression
+     */
+    public LTS<CCSExpression> getReachableLTS(CCSExpression base, SearchOrder order) {
+        return getReachableLTS(base, order, ExplorationOptions.unlimited()).getLTS();
+    }
+
+    /**
+     * Derives the LTS represented by a given expression in the context, stopping early if a limit is reached
+     * @param base the expression
+     * @param order the order in which the states are explored, which is also the order of the states of the LTS
+     * @param options the limits of the exploration, and how to report its progress
+     * @return the explored part of the LTS, whose last states are the unexplored frontier
+     */
+    public ExplorationResult<CCSExpression> getReachableLTS(CCSExpression base, SearchOrder order, ExplorationOptions options) {
+        Set<LTS.Transitions<CCSExpression>> transitions = new HashSet<>();
+        Exploration exploration = explore(base, order, options, (s, a, t) -> transitions.add(new LTS.Transitions<>(s, a, t)));
+        List<CCSExpression> states = exploration.explored;
+        states.addAll(exploration.frontier);
+        return new ExplorationResult<>(new LTS<>(states, transitions, base), Set.copyOf(exploration.frontier), exploration.limitReached);
+    }
+
+    /**
+     * Searches breadth-first for a reachable state without transitions, stopping at the first one found
+     * @param base the expression from where to start searching
+     * @param ignoreTermination whether states that are terminated, i.e. structurally equal to 0, do not count as
+     *                          deadlocks, see {@link #isTerminated(CCSExpression)}
+     * @return a shortest walk from base to a deadlocked state, or nothing if there is none
+     */
+    public Optional<Walk<CCSExpression>> findDeadlock(CCSExpression base, boolean ignoreTermination) {
+        deriveVariablesOf(base);
+        //the transition through which each state was discovered, null for base
+        Map<CCSExpression, Pair<CCSExpression, Action>> discoveredBy = new HashMap<>();
+        Deque<CCSExpression> frontier = new ArrayDeque<>();
+        discoveredBy.put(base, null);
+        frontier.add(base);
+        while (!frontier.isEmpty()) {
+            CCSExpression state = frontier.pollFirst();
+            boolean[] stuck = {true};
+            state.deriveTransitions(variableDerivations, (a, t) -> {
+                stuck[0] = false;
+                if (!discoveredBy.containsKey(t)) {
+                    discoveredBy.put(t, new Pair<>(state, a));
+                    frontier.add(t);
+                }
+            });
+            if (stuck[0] && !(ignoreTermination && isTerminated(state)))
+                return Optional.of(walkTo(state, discoveredBy));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Follows the discovering transitions back from a state to build the walk leading to it
+     */
+    private static Walk<CCSExpression> walkTo(CCSExpression state, Map<CCSExpression, Pair<CCSExpression, Action>> discoveredBy) {
+        Deque<Pair<CCSExpression, Action>> steps = new ArrayDeque<>();
+        for (Pair<CCSExpression, Action> p = discoveredBy.get(state); p != null; p = discoveredBy.get(p.first())) {
+            steps.push(new Pair<>(state, p.second()));
+            state = p.first();
+        }
+        Walk<CCSExpression> walk = new Walk<>(state);
+        for (Pair<CCSExpression, Action> step : steps)
+            walk.addStep(step.second(), step.first());
+        return walk;
+    }
+
+    /**
+     * Decides whether an expression has intentionally terminated, i.e. is made up of 0 only, like {@code (0 | 0) \ {a}}.
+     * Variables are terminated if their body is.
+     */
+    public boolean isTerminated(CCSExpression expr) {
+        return isTerminated(expr, new HashSet<>());
+    }
+
+    private boolean isTerminated(CCSExpression expr, Set<String> unfolding) {
+        if (expr instanceof Stop)
+            return true;
+        if (expr instanceof Restrict)
+            return isTerminated(((Restrict) expr).getExpression(), unfolding);
+        if (expr instanceof Parallel)
+            return ((Parallel) expr).getOperands().stream().allMatch(e -> isTerminated(e, unfolding));
+        if (expr instanceof Choice)
+            return ((Choice) expr).getOperands().stream().allMatch(e -> isTerminated(e, unfolding));
+        if (expr instanceof Variable) {
+            String var = ((Variable) expr).getVar();
+            //a variable that unfolds to itself never terminates
+            if (!unfolding.add(var))
+                return false;
+            boolean terminated = binding.lookup(var).map(e -> isTerminated(e, unfolding)).orElse(false);
+            unfolding.remove(var);
+            return terminated;
+        }
+        return false;
+    }
+
+    /**
+     * Explores the reachable fragment while only storing an approximation of the visited states, e.g. a
+     * {@link BitstateSet} or a {@link HashCompactionSet}. This sweeps state spaces too large to store, but may omit
+     * states that are wrongly considered visited. The explored states are not cached.
+     * <p>
+     * Only the frontier of discovered but unexplored states is stored in full. Depth-first, it holds the unexplored
+     * successors of the states on the current path, but breadth-first, it holds a whole level of the state space, which
+     * can take as much memory as storing the states would. Thus the frontier is bounded: a state discovered while it is
+     * full is dropped, and reported as omitted.
+     * @param base the expression from where to start exploring
+     * @param order the order in which discovered states are explored
+     * @param visited the approximate set of visited states, which should be empty
+     * @param maxFrontier the maximal number of states in the frontier
+     * @param onTransition called for each transition of each explored state, possibly more than once
+     * @return the number of explored states and transitions, and how many states were or were likely omitted
+     */
+    public ApproximateExplorationResult exploreApproximately(CCSExpression base, SearchOrder order, ApproximateStateSet visited, int maxFrontier, TransitionConsumer onTransition) {
+        if (maxFrontier <= 0)
+            throw new IllegalArgumentException("The maximal frontier size must be positive, not " + maxFrontier + "!");
+        deriveVariablesOf(base);
+        long explored = 0;
+        long[] transitions = new long[1], dropped = new long[1];
+        Deque<CCSExpression> frontier = new ArrayDeque<>();
+        visited.add(base.fingerprint());
+        frontier.add(base);
+        while (!frontier.isEmpty()) {
+            CCSExpression state = order == SearchOrder.BREADTH_FIRST ? frontier.pollFirst() : frontier.pollLast();
+            explored++;
+            state.deriveTransitions(variableDerivations, (a, t) -> {
+                transitions[0]++;
+                onTransition.accept(state, a, t);
+                if (visited.add(t.fingerprint())) {
+                    if (frontier.size() < maxFrontier)
+                        frontier.add(t);
+                    else
+                        dropped[0]++;
+                }
+            });
+        }
+        return new ApproximateExplorationResult(explored, transitions[0], visited.getExpectedOmissions(), dropped[0]);
+    }
+
+    /**
+     * Explores the reachable fragment depth-first while only storing an approximation of the visited states, with an
+     * unbounded frontier
+     * @see #exploreApproximately(CCSExpression, SearchOrder, ApproximateStateSet, int, TransitionConsumer)
+     */
+    public ApproximateExplorationResult exploreApproximately(CCSExpression base, ApproximateStateSet visited) {
+        return exploreApproximately(base, SearchOrder.DEPTH_FIRST, visited, Integer.MAX_VALUE, (s, a, t) -> {
+        });
+    }
+
+    /**
+     * Derives the same LTS as {@link #getReachableLTS(CCSExpression)}, but explores the states on all cores.
+     * The explored states are not cached.
+     * @param base the expression
+     * @param deterministicNumbering if true, the states are ordered as by a breadth-first search, at the cost of
+     *                               synchronising all workers after each breadth-first level. Otherwise, states are
+     *                               ordered by the time they were discovered.
+     * @return the LTS generated by the expression
+     */
+    public LTS<CCSExpression> getReachableLTSParallel(CCSExpression base, boolean deterministicNumbering) {
+        //this derives all variables base can ever reach, so the workers only need to read derivations
+        deriveVariablesOf(base);
+        Set<LTS.Transitions<CCSExpression>> transitions = ConcurrentHashMap.newKeySet();
+        List<CCSExpression> states = deterministicNumbering ? exploreLevelsParallel(base, transitions) : exploreParallel(base, transitions);
+        return new LTS<>(states, transitions, base);
+    }
+
+    private List<CCSExpression> exploreParallel(CCSExpression base, Set<LTS.Transitions<CCSExpression>> transitions) {
+        Set<CCSExpression> discovered = ConcurrentHashMap.newKeySet();
+        ConcurrentLinkedQueue<CCSExpression> explored = new ConcurrentLinkedQueue<>();
+        discovered.add(base);
+        new ExplorationTask(null, base, discovered, explored, transitions).invoke();
+        return new ArrayList<>(explored);
+    }
+
+    /**
+     * Explores a single state and forks a new task for each newly discovered successor.
+     * Completes once all tasks it forked have completed.
+     */
+    @SuppressWarnings("serial")
+    private final class ExplorationTask extends CountedCompleter<Void> {
+
+        private final CCSExpression state;
+        private final Set<CCSExpression> discovered;
+        private final ConcurrentLinkedQueue<CCSExpression> explored;
+        private final Set<LTS.Transitions<CCSExpression>> transitions;
+
+        private ExplorationTask(ExplorationTask parent, CCSExpression state, Set<CCSExpression> discovered,
+                                ConcurrentLinkedQueue<CCSExpression> explored, Set<LTS.Transitions<CCSExpression>> transitions) {
+            super(parent);
+            this.state = state;
+            this.discovered = discovered;
+            this.explored = explored;
+            this.transitions = transitions;
+        }
+
+        @Override
+        public void compute() {
+            explored.add(state);
+            state.deriveTransitions(variableDerivations, (a, t) -> {
+                transitions.add(new LTS.Transitions<>(state, a, t));
+                if (discovered.add(t)) {
+                    addToPendingCount(1);
+                    new ExplorationTask(this, t, discovered, explored, transitions).fork();
+                }
+            });
+            tryComplete();
+        }
+    }
+
+    private List<CCSExpression> exploreLevelsParallel(CCSExpression base, Set<LTS.Transitions<CCSExpression>> transitions) {
+        //maps each discovered state to the (level, index in level) of the first state that discovered it
+        Map<CCSExpression, Long> discoveredBy = new ConcurrentHashMap<>();
+        List<CCSExpression> explored = new ArrayList<>();
+        List<CCSExpression> level = List.of(base);
+        discoveredBy.put(base, -1L);
+        for (long depth = 0; !level.isEmpty(); depth++) {
+            explored.addAll(level);
+            final long levelMark = depth << 32;
+            final List<CCSExpression> current = level;
+            List<List<CCSExpression>> successors = IntStream.range(0, current.size()).parallel().mapToObj(i -> {
+                CCSExpression state = current.get(i);
+                List<CCSExpression> targets = new ArrayList<>();
+                state.deriveTransitions(variableDerivations, (a, t) -> {
+                    transitions.add(new LTS.Transitions<>(state, a, t));
+                    discoveredBy.merge(t, levelMark | i, Math::min);
+                    targets.add(t);
+                });
+                return targets;
+            }).collect(Collectors.toList());
+            //now that all claims of this level are known, each state keeps the successors it discovered first.
+            //releasing the claim makes sure each successor is kept only once
+            List<List<CCSExpression>> owned = IntStream.range(0, current.size()).parallel().mapToObj(i -> {
+                List<CCSExpression> mine = new ArrayList<>();
+                for (CCSExpression t : successors.get(i))
+                    if (discoveredBy.replace(t, levelMark | i, -1L))
+                        mine.add(t);
+                return mine;
+            }).collect(Collectors.toList());
+            level = owned.stream().flatMap(List::stream).collect(Collectors.toList());
+        }
+        return explored;
     }
 
     /**
@@ -0,0 +1,113 @@
+package de.jojomodding.np.algo;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Limits on the resources an exploration may use, and how it reports its progress. Options are immutable, each
+ * {@code with} method returns a copy with one option changed.
+ */
+public final class ExplorationOptions {
+
+    private static final ExplorationOptions UNLIMITED = new ExplorationOptions(Integer.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE, null, null, Duration.ofSeconds(1));
+
+    private final int maxStates;
+    private final long maxTransitions;
+    private final int maxDepth;
+    private final Duration timeLimit;
+    private final Consumer<ExplorationProgress> progressListener;
+    private final Duration progressInterval;
+
+    private ExplorationOptions(int maxStates, long maxTransitions, int maxDepth, Duration timeLimit, Consumer<ExplorationProgress> progressListener, Duration progressInterval) {
+        this.maxStates = maxStates;
+        this.maxTransitions = maxTransitions;
+        this.maxDepth = maxDepth;
+        this.timeLimit = timeLimit;
+        this.progressListener = progressListener;
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * The options without any limits or progress reports
+     */
+    public static ExplorationOptions unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Stops exploring once this many states were explored. Their successors are still discovered, so the result may
+     * contain more states in its frontier
+     */
+    public ExplorationOptions withMaxStates(int maxStates) {
+        if (maxStates <= 0)
+            throw new IllegalArgumentException("The maximal number of states must be positive, not " + maxStates + "!");
+        return new ExplorationOptions(maxStates, maxTransitions, maxDepth, timeLimit, progressListener, progressInterval);
+    }
+
+    /**
+     * Stops exploring once this many transitions were derived
+     */
+    public ExplorationOptions withMaxTransitions(long maxTransitions) {
+        if (maxTransitions < 0)
+            throw new IllegalArgumentException("The maximal number of transitions must not be negative, not " + maxTransitions + "!");
+        return new ExplorationOptions(maxStates, maxTransitions, maxDepth, timeLimit, progressListener, progressInterval);
+    }
+
+    /**
+     * Does not explore states that are further than this many transitions away from the start, along the path on which
+     * they were discovered. Other states are still explored
+     */
+    public ExplorationOptions withMaxDepth(int maxDepth) {
+        if (maxDepth < 0)
+            throw new IllegalArgumentException("The maximal depth must not be negative, not " + maxDepth + "!");
+        return new ExplorationOptions(maxStates, maxTransitions, maxDepth, timeLimit, progressListener, progressInterval);
+    }
+
+    /**
+     * Stops exploring once this much wall-clock time has passed since the exploration started
+     */
+    public ExplorationOptions withTimeLimit(Duration timeLimit) {
+        if (timeLimit.isNegative())
+            throw new IllegalArgumentException("The time limit must not be negative, not " + timeLimit + "!");
+        return new ExplorationOptions(maxStates, maxTransitions, maxDepth, timeLimit, progressListener, progressInterval);
+    }
+
+    /**
+     * Reports the progress to the listener about every interval, on the exploring thread
+     */
+    public ExplorationOptions withProgressListener(Consumer<ExplorationProgress> progressListener, Duration interval) {
+        if (interval.isNegative())
+            throw new IllegalArgumentException("The progress interval must not be negative, not " + interval + "!");
+        return new ExplorationOptions(maxStates, maxTransitions, maxDepth, timeLimit, progressListener, interval);
+    }
+
+    public int getMaxStates() {
+        return maxStates;
+    }
+
+    public long getMaxTransitions() {
+        return maxTransitions;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * The time limit, or null if there is none
+     */
+    public Duration getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * The progress listener, or null if there is none
+     */
+    public Consumer<ExplorationProgress> getProgressListener() {
+        return progressListener;
+    }
+
+    public Duration getProgressInterval() {
+        return progressInterval;
+    }
+}
@@ -0,0 +1,59 @@
+package de.jojomodding.np.algo;
+
+import java.time.Duration;
+
+/**
+ * A snapshot of a running exploration
+ */
+public final class ExplorationProgress {
+
+    private final int exploredStates;
+    private final int frontierSize;
+    private final long transitions;
+    private final Duration elapsed;
+    private final long usedMemory;
+
+    public ExplorationProgress(int exploredStates, int frontierSize, long transitions, Duration elapsed, long usedMemory) {
+        this.exploredStates = exploredStates;
+        this.frontierSize = frontierSize;
+        this.transitions = transitions;
+        this.elapsed = elapsed;
+        this.usedMemory = usedMemory;
+    }
+
+    public int getExploredStates() {
+        return exploredStates;
+    }
+
+    /**
+     * The number of states that were discovered, but not explored yet
+     */
+    public int getFrontierSize() {
+        return frontierSize;
+    }
+
+    public long getTransitions() {
+        return transitions;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public double getStatesPerSecond() {
+        return exploredStates / Math.max(elapsed.toNanos() / 1e9, 1e-9);
+    }
+
+    /**
+     * The heap memory in use, in bytes. This includes garbage that was not collected yet, so it is only an estimate
+     */
+    public long getUsedMemory() {
+        return usedMemory;
+    }
+
+    @Override
+    public String toString() {
+        return exploredStates + " states explored (" + Math.round(getStatesPerSecond()) + "/s), " + frontierSize + " in frontier, "
+               + transitions + " transitions, " + elapsed.toMillis() + "ms, " + usedMemory / (1024 * 1024) + "MiB used";
+    }
+}
@@ -0,0 +1,64 @@
+package de.jojomodding.np.algo;
+
+import de.jojomodding.np.lts.LTS;
+
+import java.util.Set;
+
+/**
+ * The outcome of an exploration that might have been stopped by a limit
+ *
+ * @param <T> the type of the states
+ */
+public final class ExplorationResult<T> {
+
+    /**
+     * The limits that can stop an exploration
+     */
+    public enum Limit {
+        STATES, TRANSITIONS, DEPTH, TIME
+    }
+
+    private final LTS<T> lts;
+    private final Set<T> frontier;
+    private final Limit limitReached;
+
+    public ExplorationResult(LTS<T> lts, Set<T> frontier, Limit limitReached) {
+        this.lts = lts;
+        this.frontier = frontier;
+        this.limitReached = limitReached;
+    }
+
+    /**
+     * The explored part of the LTS. It contains the frontier states, but not their transitions
+     */
+    public LTS<T> getLTS() {
+        return lts;
+    }
+
+    /**
+     * The states that were discovered but not explored, so some of their transitions might be missing
+     */
+    public Set<T> getFrontier() {
+        return frontier;
+    }
+
+    /**
+     * The limit that stopped the exploration, or null if it was complete
+     */
+    public Limit getLimitReached() {
+        return limitReached;
+    }
+
+    /**
+     * Whether all reachable states were explored
+     */
+    public boolean isComplete() {
+        return limitReached == null;
+    }
+
+    @Override
+    public String toString() {
+        return (isComplete() ? "complete" : "stopped by " + limitReached + " limit") + ", " + lts.getStates().size() + " states, "
+               + frontier.size() + " in frontier, " + lts.getTransitions().size() + " transitions";
+    }
+}
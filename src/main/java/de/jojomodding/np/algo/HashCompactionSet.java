@@ -0,0 +1,76 @@
+package de.jojomodding.np.algo;
+
+/**
+ * An approximate state set that stores the 64-bit fingerprint of each state, also known as hash compaction.
+ * A state is considered visited if a state with the same fingerprint was, so omissions need a fingerprint collision.
+ * Uses 16 to 32 bytes per state.
+ */
+public final class HashCompactionSet implements ApproximateStateSet {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The fingerprints, where 0 marks a free slot
+     */
+    private long[] table;
+    private int size;
+    private double expectedOmissions;
+
+    public HashCompactionSet() {
+        this.table = new long[INITIAL_CAPACITY];
+    }
+
+    @Override
+    public boolean add(long fingerprint) {
+        //0 marks free slots, so it shares its slot with 1
+        if (fingerprint == 0)
+            fingerprint = 1;
+        int mask = table.length - 1;
+        for (int slot = (int) fingerprint & mask; ; slot = (slot + 1) & mask) {
+            if (table[slot] == fingerprint)
+                return false;
+            if (table[slot] == 0) {
+                //a new state would have been omitted if its fingerprint had been one of the stored ones
+                expectedOmissions += size / 0x1p64;
+                table[slot] = fingerprint;
+                size++;
+                //keep the load factor at most one half
+                if (2 * size > table.length)
+                    grow();
+                return true;
+            }
+        }
+    }
+
+    private void grow() {
+        if (table.length == MAXIMUM_CAPACITY)
+            throw new IllegalStateException("The set is full!");
+        long[] old = table;
+        table = new long[2 * old.length];
+        int mask = table.length - 1;
+        for (long fingerprint : old) {
+            if (fingerprint == 0)
+                continue;
+            int slot = (int) fingerprint & mask;
+            while (table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = fingerprint;
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public double getExpectedOmissions() {
+        return expectedOmissions;
+    }
+
+    @Override
+    public String toString() {
+        return "HashCompactionSet(" + size + " states)";
+    }
+}
@@ -0,0 +1,88 @@
+package de.jojomodding.np.algo;
+
+import java.util.Arrays;
+
+/**
+ * A state store on the heap. The vectors are stored back to back in a single array, and are found by open addressing,
+ * so a vector costs little more than its own entries.
+ */
+public final class HeapStateStore implements StateStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int width;
+    private int[] vectors;
+    /**
+     * The index of the vector in each slot plus one, or 0 if the slot is free
+     */
+    private int[] slots;
+    private int count;
+
+    public HeapStateStore(int width) {
+        if (width <= 0)
+            throw new IllegalArgumentException("The width must be positive, not " + width + "!");
+        this.width = width;
+        this.vectors = new int[INITIAL_CAPACITY * width];
+        this.slots = new int[2 * INITIAL_CAPACITY];
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int add(int[] v) {
+        int mask = slots.length - 1;
+        for (int slot = hash(v, 0) & mask; ; slot = (slot + 1) & mask) {
+            int index = slots[slot] - 1;
+            if (index < 0) {
+                index = count++;
+                if (index * width == vectors.length)
+                    vectors = Arrays.copyOf(vectors, 2 * vectors.length);
+                System.arraycopy(v, 0, vectors, index * width, width);
+                slots[slot] = index + 1;
+                //keep the load factor at most one half
+                if (2 * count > slots.length)
+                    rehash();
+                return index;
+            }
+            if (Arrays.equals(vectors, index * width, index * width + width, v, 0, width))
+                return ~index;
+        }
+    }
+
+    @Override
+    public void get(int index, int[] v) {
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + count);
+        System.arraycopy(vectors, index * width, v, 0, width);
+    }
+
+    private void rehash() {
+        slots = new int[2 * slots.length];
+        int mask = slots.length - 1;
+        for (int index = 0; index < count; index++) {
+            int slot = hash(vectors, index * width) & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = index + 1;
+        }
+    }
+
+    private int hash(int[] a, int offset) {
+        int h = 1;
+        for (int i = offset; i < offset + width; i++)
+            h = 31 * h + a[i];
+        //spread the bits, since the slots are selected by the low bits only
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
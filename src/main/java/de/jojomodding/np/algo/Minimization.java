@@ -1,27 +1,22 @@
 package de.jojomodding.np.algo;
 
 import de.jojomodding.np.lts.Action;
+import de.jojomodding.np.lts.CompactLTS;
 import de.jojomodding.np.lts.LTS;
-import de.jojomodding.np.util.Either;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
+import java.util.Deque;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
-import java.util.function.BiFunction;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 /**
  * Performs LTS minimisation
  */
 public class Minimization {
 
-    private static <T> BiFunction<Set<T>, Action, Set<T>> predecessors(Set<LTS.Transitions<T>> trans) {
-        return (of, a) -> trans.stream().filter(t -> t.getAction().equals(a)).filter(t -> of.contains(t.getTarget())).map(LTS.Transitions::getSource).collect(Collectors.toSet());
-    }
-
     /**
      * Finds the minimal LTS bisimilar to the given LTS
      *
@@ -29,97 +24,153 @@ public class Minimization {
      * @return the smallest LTS bisimilar to base
      */
     public static <T> LTS<Set<T>> minimizeBisimilarity(LTS<T> base) {
-        return minimizeStates(base, predecessors(base.getTransitions()), $ -> false);
-    }
-
-    private static <T> LTS<Set<T>> minimizeStates(LTS<T> base, BiFunction<Set<T>, Action, Set<T>> preds, Predicate<Set<Set<T>>> stopIf) {
-        Set<Set<T>> equivalenceClasses = new HashSet<>();
-        equivalenceClasses.add(new HashSet<>(base.getStates()));
-        Set<Action> allActions = base.getTransitions().stream().map(LTS.Transitions::getAction).collect(Collectors.toUnmodifiableSet());
-        outer:
-        do {
-            if (stopIf.test(equivalenceClasses))
-                break;
-            for (Action a : allActions) {
-                for (Set<T> eq : equivalenceClasses) {
-                    Set<T> pre = preds.apply(eq, a);
-                    Set<Set<T>> newEQ = new HashSet<>();
-                    for (Set<T> eq2 : equivalenceClasses) {
-                        Set<T> splt = new HashSet<>(eq2);
-                        splt.removeIf(pre::contains);
-                        if (splt.size() == 0 || splt.size() == eq2.size()) {
-                            newEQ.add(eq2);
-                        } else {
-                            eq2.removeIf(t -> !pre.contains(t));
-                            newEQ.add(splt);
-                            newEQ.add(eq2);
-                        }
-                    }
-                    if (newEQ.size() != equivalenceClasses.size()) {
-                        equivalenceClasses = newEQ;
-                        continue outer;
-                    }
+        CompactLTS lts = CompactLTS.of(base);
+        int[] classes = StrongBisimulation.classes(lts);
+        return toLTS(classStates(base, classes), quotient(lts, classes), null);
+    }
+
+    private static int classCount(int[] classOf) {
+        int count = 0;
+        for (int c : classOf)
+            count = Math.max(count, c + 1);
+        return count;
+    }
+
+    /**
+     * The LTS whose states are the indices of the equivalence classes
+     */
+    private static CompactLTS quotient(CompactLTS lts, int[] classOf) {
+        return quotient(lts, classOf, false);
+    }
+
+    /**
+     * The LTS whose states are the indices of the equivalence classes
+     *
+     * @param dropTauLoops whether to leave out the τ transitions within a class, which is sound for equivalences that
+     *                     ignore divergence
+     */
+    private static CompactLTS quotient(CompactLTS lts, int[] classOf, boolean dropTauLoops) {
+        CompactLTS.Builder b = CompactLTS.builder().ensureStates(classCount(classOf)).setStart(classOf[lts.getStart()]);
+        for (int s = 0; s < lts.getStateCount(); s++) {
+            for (int i = lts.outStart(s); i < lts.outEnd(s); i++) {
+                Action a = lts.getAction(lts.outAction(i));
+                if (!dropTauLoops || !a.isInternal() || classOf[s] != classOf[lts.outTarget(i)])
+                    b.addTransition(classOf[s], a, classOf[lts.outTarget(i)]);
+            }
+        }
+        return b.build();
+    }
+
+    /**
+     * The equivalence classes as sets of the states of base, numbered as in {@link CompactLTS#of(LTS)}
+     */
+    private static <T> List<Set<T>> classStates(LTS<T> base, int[] classOf) {
+        int count = classCount(classOf);
+        List<T> baseStates = CompactLTS.statesOf(base);
+        List<Set<T>> states = new ArrayList<>(count);
+        for (int c = 0; c < count; c++)
+            states.add(new HashSet<>());
+        for (int s = 0; s < classOf.length; s++)
+            states.get(classOf[s]).add(baseStates.get(s));
+        return states;
+    }
+
+    /**
+     * Converts a quotient back to an LTS over the equivalence classes
+     *
+     * @param removed the transitions of the quotient that are left out, by index, or null to keep all
+     */
+    private static <T> LTS<Set<T>> toLTS(List<Set<T>> states, CompactLTS quotient, boolean[] removed) {
+        //a modifiable set, see minimizeObservationCongruence
+        Set<LTS.Transitions<Set<T>>> newTrans = new HashSet<>();
+        for (int s = 0; s < quotient.getStateCount(); s++)
+            for (int i = quotient.outStart(s); i < quotient.outEnd(s); i++)
+                if (removed == null || !removed[i])
+                    newTrans.add(new LTS.Transitions<>(states.get(s), quotient.getAction(quotient.outAction(i)), states.get(quotient.outTarget(i))));
+        return new LTS<>(states, newTrans, states.get(quotient.getStart()));
+    }
+
+    /**
+     * Checks whether start can reach stop by tau transitions, then a, then tau transitions again, where a is skipped if
+     * it is tau. Only the transitions that are not removed are used
+     */
+    private static boolean hasWeakTransaction(CompactLTS lts, boolean[] removed, int start, int a, int stop) {
+        int tau = lts.getActionId(Action.tau());
+        BitSet starts = tauAfters(lts, removed, tau, singleton(start));
+        if (a == tau)
+            return starts.get(stop);
+        BitSet middle = new BitSet();
+        for (int s = starts.nextSetBit(0); s >= 0; s = starts.nextSetBit(s + 1))
+            for (int i = lts.outStart(s); i < lts.outEnd(s); i++)
+                if (!removed[i] && lts.outAction(i) == a)
+                    middle.set(lts.outTarget(i));
+        return tauAfters(lts, removed, tau, middle).get(stop);
+    }
+
+    private static BitSet singleton(int s) {
+        BitSet b = new BitSet();
+        b.set(s);
+        return b;
+    }
+
+    /**
+     * Extends the given states by all states they reach with tau transitions that are not removed
+     */
+    private static BitSet tauAfters(CompactLTS lts, boolean[] removed, int tau, BitSet from) {
+        BitSet reached = (BitSet) from.clone();
+        Deque<Integer> stack = new ArrayDeque<>();
+        from.stream().forEach(stack::push);
+        while (!stack.isEmpty()) {
+            int s = stack.pop();
+            for (int i = lts.outStart(s); i < lts.outEnd(s); i++) {
+                int t = lts.outTarget(i);
+                if (!removed[i] && lts.outAction(i) == tau && !reached.get(t)) {
+                    reached.set(t);
+                    stack.push(t);
                 }
             }
-            break;
-        } while (true);
-        Map<T, Set<T>> eqMap = new HashMap<>();
-        equivalenceClasses.forEach(s -> s.forEach(t -> eqMap.put(t, s)));
-        Set<LTS.Transitions<Set<T>>> newTrans = base.getTransitions().stream().map(p -> new LTS.Transitions<>(eqMap.get(p.getSource()), p.getAction(), eqMap.get(p.getTarget()))).collect(Collectors.toUnmodifiableSet());
-        return new LTS<>(new ArrayList<>(equivalenceClasses), newTrans, eqMap.get(base.getStart()));
-    }
-
-
-    private static <T> BiFunction<Set<T>, Action, Set<T>> weakPredecessors(LTS<T> lts) {
-        Map<T, Set<T>> tauBefores = new HashMap<>();
-
-        lts.getStates().forEach(s -> {
-            //make it reflexive
-            tauBefores.computeIfAbsent(s, $ -> new HashSet<>()).add(s);
-        });
-
-        lts.getTransitions().stream()
-           .filter(tr -> tr.getAction().isInternal())
-           .forEach(tr -> {
-               tauBefores.get(tr.getTarget()).add(tr.getSource());
-           });
-        int oldSize;
-        do {
-            oldSize = tauBefores.values().stream().mapToInt(Set::size).sum();
-            lts.getTransitions().stream()
-               .filter(tr -> tr.getAction().isInternal())
-               .forEach(tr -> tauBefores.get(tr.getTarget()).addAll(tauBefores.get(tr.getSource())));
-        } while (oldSize != tauBefores.values().stream().mapToInt(Set::size).sum());
-        return (tgts, a) -> {
-            Set<T> myTauBefores = tgts.stream()
-                                      .flatMap(k -> tauBefores.get(k).stream())
-                                      .collect(Collectors.toUnmodifiableSet());
-            if (a.isInternal())
-                return myTauBefores;
-            else
-                return lts.getTransitions().stream().filter(t -> myTauBefores.contains(t.getTarget()) && t.getAction().equals(a))
-                          .flatMap(k -> tauBefores.get(k.getSource()).stream())
-                          .collect(Collectors.toUnmodifiableSet());
-        };
-    }
-
-    private static <T> boolean hasWeakTransaction(Set<LTS.Transitions<T>> t, T start, Action a, T stop) {
-        Set<T> starts = new HashSet<>(), oldstarts, stops = new HashSet<>(), oldstops;
-        starts.add(start);
-        do {
-            oldstarts = new HashSet<>(starts);
-            t.stream().filter(p -> starts.contains(p.getSource()) && p.getAction().isInternal()).forEach(p -> starts.add(p.getTarget()));
-        } while (starts.size() != oldstarts.size());
-        if (a.isInternal())
-            return starts.contains(stop);
-
-        stops.add(stop);
-        do {
-            oldstops = new HashSet<>(stops);
-            t.stream().filter(p -> stops.contains(p.getTarget()) && p.getAction().isInternal()).forEach(p -> stops.add(p.getSource()));
-        } while (stops.size() != oldstops.size());
-
-        return t.stream().filter(p -> starts.contains(p.getSource()) && stops.contains(p.getTarget())).anyMatch(p -> p.getAction().equals(a));
+        }
+        return reached;
+    }
+
+    /**
+     * Finds the minimal LTS bisimilar to the given LTS, computing the classes on all cores by
+     * {@link SignatureRefinement}
+     *
+     * @param base the LTS to minimize
+     * @return the smallest LTS bisimilar to base
+     */
+    public static <T> LTS<Set<T>> minimizeBisimilarityParallel(LTS<T> base) {
+        CompactLTS lts = CompactLTS.of(base);
+        int[] classes = SignatureRefinement.strongClasses(lts);
+        return toLTS(classStates(base, classes), quotient(lts, classes), null);
+    }
+
+    /**
+     * Computes the weak bisimilarity classes, as the strong bisimilarity classes of the saturated LTS
+     *
+     * @return the class of each state
+     */
+    private static int[] weakClasses(CompactLTS lts) {
+        WeakTransitions weak = new WeakTransitions(lts);
+        int[] saturated = StrongBisimulation.classes(weak.saturate());
+        int[] classes = new int[lts.getStateCount()];
+        for (int s = 0; s < classes.length; s++)
+            classes[s] = saturated[weak.componentOf(s)];
+        return classes;
+    }
+
+    /**
+     * Finds the minimal LTS branching bisimilar to the given LTS. Since branching bisimilarity ignores divergence, the
+     * τ transitions within a class are left out
+     *
+     * @param base the LTS to minimize
+     * @return the smallest LTS branching bisimilar to base
+     */
+    public static <T> LTS<Set<T>> minimizeBranchingBisimilarity(LTS<T> base) {
+        CompactLTS lts = CompactLTS.of(base);
+        int[] classes = BranchingBisimulation.classes(lts);
+        return toLTS(classStates(base, classes), quotient(lts, classes, true), null);
     }
 
     /**
@@ -129,14 +180,44 @@ public class Minimization {
      * @return the smallest LTS weakly bisimilar to base
      */
     public static <T> LTS<Set<T>> minimizeWeakBisimilarity(LTS<T> base) {
-        LTS<Set<T>> minStates = minimizeStates(base, weakPredecessors(base), $ -> false);
-        HashSet<LTS.Transitions<Set<T>>> trans = new HashSet<>(minStates.getTransitions());
-        for (LTS.Transitions<Set<T>> k : minStates.getTransitions()) {
-            trans.remove(k);
-            if (!hasWeakTransaction(trans, k.getSource(), k.getAction(), k.getTarget()))
-                trans.add(k);
+        CompactLTS lts = CompactLTS.of(base);
+        //branching bisimilarity implies weak bisimilarity and is much cheaper, so the saturation runs on its quotient
+        int[] branching = BranchingBisimulation.classes(lts);
+        CompactLTS reduced = quotient(lts, branching, true);
+        int[] weak = weakClasses(reduced);
+        int[] classes = new int[lts.getStateCount()];
+        for (int s = 0; s < classes.length; s++)
+            classes[s] = weak[branching[s]];
+        return minimizeWeak(base, lts, classes);
+    }
+
+    /**
+     * Finds the minimal LTS weakly bisimilar to the given LTS, computing the classes on all cores by
+     * {@link SignatureRefinement}
+     *
+     * @param base the LTS to minimize
+     * @return the smallest LTS weakly bisimilar to base
+     */
+    public static <T> LTS<Set<T>> minimizeWeakBisimilarityParallel(LTS<T> base) {
+        CompactLTS lts = CompactLTS.of(base);
+        return minimizeWeak(base, lts, SignatureRefinement.weakClasses(lts));
+    }
+
+    /**
+     * Builds the quotient by the weak bisimilarity classes, without the transitions implied by the remaining ones
+     */
+    private static <T> LTS<Set<T>> minimizeWeak(LTS<T> base, CompactLTS lts, int[] classes) {
+        CompactLTS min = quotient(lts, classes);
+        //drop the transitions that are implied by the remaining ones
+        boolean[] removed = new boolean[min.getTransitionCount()];
+        for (int s = 0; s < min.getStateCount(); s++) {
+            for (int i = min.outStart(s); i < min.outEnd(s); i++) {
+                removed[i] = true;
+                if (!hasWeakTransaction(min, removed, s, min.outAction(i), min.outTarget(i)))
+                    removed[i] = false;
+            }
         }
-        return new LTS<>(minStates.getStates(), trans, minStates.getStart());
+        return toLTS(classStates(base, classes), min, removed);
     }
 
     /**
@@ -155,48 +236,44 @@ public class Minimization {
         return wbMin;
     }
 
-    private static <T, U> boolean equalsUpTo(LTS<T> aa, LTS<U> bb, BiFunction<LTS<Either<Integer, Integer>>, Predicate<Set<Set<Either<Integer, Integer>>>>, LTS<Set<Either<Integer, Integer>>>> eqNotion) {
-        LTS<Integer> a = aa.rename(), b = bb.rename();
-        LTS<Either<Integer, Integer>> merge = a.mergeWith(b);
-        LTS<Set<Either<Integer, Integer>>> minimized = eqNotion.apply(merge, ss -> ss.stream().noneMatch(
-                s -> s.contains(Either.left(a.getStart())) && s.contains(Either.right(b.getStart())
-                )));
-        return minimized.getStates().stream().anyMatch(
-                s -> s.contains(Either.left(a.getStart())) && s.contains(Either.right(b.getStart()))
-        );
+    public static <T, U> boolean equalsUpToBisimilarity(LTS<T> aa, LTS<U> bb) {
+        CompactLTS a = CompactLTS.of(aa), b = CompactLTS.of(bb);
+        int[] classes = StrongBisimulation.classes(a.disjointUnion(b));
+        return classes[a.getStart()] == classes[a.getStateCount() + b.getStart()];
     }
 
-    public static <T, U> boolean equalsUpToBisimilarity(LTS<T> a, LTS<U> b) {
-        return equalsUpTo(a, b, (base, pred) -> minimizeStates(base, predecessors(base.getTransitions()), pred));
+    public static <T, U> boolean equalsUpToBranchingBisimilarity(LTS<T> aa, LTS<U> bb) {
+        CompactLTS a = CompactLTS.of(aa), b = CompactLTS.of(bb);
+        int[] classes = BranchingBisimulation.classes(a.disjointUnion(b));
+        return classes[a.getStart()] == classes[a.getStateCount() + b.getStart()];
     }
 
-    public static <T, U> boolean equalsUpToWeakBisimilarity(LTS<T> a, LTS<U> b) {
+    public static <T, U> boolean equalsUpToWeakBisimilarity(LTS<T> aa, LTS<U> bb) {
         //we don't care about superfluous transactions
-        return equalsUpTo(a, b, (base, pred) -> minimizeStates(base, weakPredecessors(base), pred));
+        CompactLTS a = CompactLTS.of(aa), b = CompactLTS.of(bb);
+        int[] classes = weakClasses(a.disjointUnion(b));
+        return classes[a.getStart()] == classes[a.getStateCount() + b.getStart()];
     }
 
     public static <T, U> boolean equalsUpToObservationCongruence(LTS<T> aa, LTS<U> bb) {
-        LTS<Integer> a = aa.rename(), b = bb.rename();
-        LTS<Either<Integer, Integer>> merge = a.mergeWith(b);
-        LTS<Set<Either<Integer, Integer>>> minimized
-                = minimizeStates(merge, weakPredecessors(merge),
-                                 ss -> ss.stream().noneMatch(
-                                         s -> s.contains(Either.left(a.getStart())) && s.contains(Either.right(b.getStart()))));
-        if (minimized.getStates().stream().noneMatch(
-                s -> s.contains(Either.left(a.getStart())) && s.contains(Either.right(b.getStart()))))
+        CompactLTS a = CompactLTS.of(aa), b = CompactLTS.of(bb);
+        int[] classes = weakClasses(a.disjointUnion(b));
+        int startClass = classes[a.getStart()];
+        if (startClass != classes[a.getStateCount() + b.getStart()])
             return false;
         //check whether initial tau transitions coincide. apart from that we don't care about superfluous transitions, as above
-        boolean leftInitialTau = false, rightInitialTau = false;
-        if (a.getTransitions().stream().filter(t -> t.getSource().equals(a.getStart()) && t.getAction().isInternal())
-             .anyMatch(t -> minimized.getStart().contains(Either.left(t.getTarget())))) {
-            leftInitialTau = true;
-        }
-        if (b.getTransitions().stream().filter(t -> t.getSource().equals(b.getStart()) && t.getAction().isInternal())
-             .anyMatch(t -> minimized.getStart().contains(Either.right(t.getTarget())))) {
-            rightInitialTau = true;
-        }
-        return leftInitialTau == rightInitialTau;
+        return hasInitialTau(a, classes, startClass, 0) == hasInitialTau(b, classes, startClass, a.getStateCount());
     }
 
+    /**
+     * Whether the start of lts has a tau transition into the given class, where the state ids of lts are shifted by offset
+     */
+    private static boolean hasInitialTau(CompactLTS lts, int[] classes, int startClass, int offset) {
+        int tau = lts.getActionId(Action.tau());
+        for (int i = lts.outStart(lts.getStart()); i < lts.outEnd(lts.getStart()); i++)
+            if (lts.outAction(i) == tau && classes[offset + lts.outTarget(i)] == startClass)
+                return true;
+        return false;
+    }
 
 }
@@ -0,0 +1,199 @@
+package de.jojomodding.np.algo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A state store outside of the heap, so that huge numbers of states neither need a huge heap nor slow down the garbage
+ * collector. The vectors are stored in segments of direct memory, or of a memory-mapped file that the operating system
+ * can page out. The open addressing index always lives in direct memory.
+ * <p>
+ * A store backed by a file deletes the file when it is closed.
+ */
+public final class OffHeapStateStore implements StateStore {
+
+    /**
+     * The number of ints per segment, a power of two
+     */
+    private static final int SEGMENT_INTS = 1 << 22;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int width;
+    private final int vectorsPerSegment;
+    private final List<IntBuffer> vectors;
+    private final Path path;
+    private final FileChannel file;
+    private long mapped;
+    /**
+     * The index of the vector in each slot plus one, or 0 if the slot is free
+     */
+    private IntBuffer[] slots;
+    private int slotCount;
+    private int count;
+
+    /**
+     * Constructs a store in direct memory, which is limited by the JVM's {@code -XX:MaxDirectMemorySize}
+     * @param width the width of the vectors
+     */
+    public OffHeapStateStore(int width) {
+        this(width, null);
+    }
+
+    /**
+     * Constructs a store whose vectors are kept in a memory-mapped file
+     * @param width the width of the vectors
+     * @param path the file, which is overwritten and deleted on {@link #close()}. If null, direct memory is used instead
+     */
+    public OffHeapStateStore(int width, Path path) {
+        if (width <= 0 || width > SEGMENT_INTS)
+            throw new IllegalArgumentException("The width must be between 1 and " + SEGMENT_INTS + ", not " + width + "!");
+        this.width = width;
+        this.vectorsPerSegment = SEGMENT_INTS / width;
+        this.vectors = new ArrayList<>();
+        this.path = path;
+        try {
+            this.file = path == null ? null : FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.slotCount = 2 * INITIAL_CAPACITY;
+        this.slots = allocateSlots(slotCount);
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int add(int[] v) {
+        int mask = slotCount - 1;
+        for (int slot = hash(v) & mask; ; slot = (slot + 1) & mask) {
+            int index = getSlot(slot) - 1;
+            if (index < 0) {
+                index = count;
+                if (index % vectorsPerSegment == 0)
+                    vectors.add(allocateVectors());
+                IntBuffer segment = vectors.get(index / vectorsPerSegment);
+                int offset = (index % vectorsPerSegment) * width;
+                for (int i = 0; i < width; i++)
+                    segment.put(offset + i, v[i]);
+                count++;
+                setSlot(slot, index + 1);
+                //keep the load factor at most one half
+                if (count > slotCount / 2)
+                    rehash();
+                return index;
+            }
+            if (matches(index, v))
+                return ~index;
+        }
+    }
+
+    @Override
+    public void get(int index, int[] v) {
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + count);
+        IntBuffer segment = vectors.get(index / vectorsPerSegment);
+        int offset = (index % vectorsPerSegment) * width;
+        for (int i = 0; i < width; i++)
+            v[i] = segment.get(offset + i);
+    }
+
+    /**
+     * Drops all segments, and deletes the file if there is one
+     */
+    @Override
+    public void close() {
+        vectors.clear();
+        slots = null;
+        if (file == null)
+            return;
+        //the mappings stay valid until they are garbage collected, but the file is not needed anymore
+        try {
+            file.close();
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean matches(int index, int[] v) {
+        IntBuffer segment = vectors.get(index / vectorsPerSegment);
+        int offset = (index % vectorsPerSegment) * width;
+        for (int i = 0; i < width; i++)
+            if (segment.get(offset + i) != v[i])
+                return false;
+        return true;
+    }
+
+    private IntBuffer allocateVectors() {
+        long bytes = 4L * vectorsPerSegment * width;
+        if (file == null)
+            return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder()).asIntBuffer();
+        try {
+            IntBuffer segment = file.map(FileChannel.MapMode.READ_WRITE, mapped, bytes).order(ByteOrder.nativeOrder()).asIntBuffer();
+            mapped += bytes;
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static IntBuffer[] allocateSlots(int slotCount) {
+        int segmentInts = Math.min(slotCount, SEGMENT_INTS);
+        IntBuffer[] slots = new IntBuffer[slotCount / segmentInts];
+        for (int i = 0; i < slots.length; i++)
+            slots[i] = ByteBuffer.allocateDirect(4 * segmentInts).order(ByteOrder.nativeOrder()).asIntBuffer();
+        return slots;
+    }
+
+    private int getSlot(int slot) {
+        return slots[slot / SEGMENT_INTS].get(slot % SEGMENT_INTS);
+    }
+
+    private void setSlot(int slot, int value) {
+        slots[slot / SEGMENT_INTS].put(slot % SEGMENT_INTS, value);
+    }
+
+    private void rehash() {
+        if (slotCount == 1 << 30)
+            throw new IllegalStateException("The store is full!");
+        slotCount *= 2;
+        slots = allocateSlots(slotCount);
+        int mask = slotCount - 1;
+        int[] v = new int[width];
+        for (int index = 0; index < count; index++) {
+            get(index, v);
+            int slot = hash(v) & mask;
+            while (getSlot(slot) != 0)
+                slot = (slot + 1) & mask;
+            setSlot(slot, index + 1);
+        }
+    }
+
+    private int hash(int[] v) {
+        int h = 1;
+        for (int i = 0; i < width; i++)
+            h = 31 * h + v[i];
+        //spread the bits, since the slots are selected by the low bits only
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
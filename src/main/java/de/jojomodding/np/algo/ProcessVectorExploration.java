@@ -0,0 +1,571 @@
+package de.jojomodding.np.algo;
+
+import de.jojomodding.np.Factory;
+import de.jojomodding.np.ccs.expr.CCSExpression;
+import de.jojomodding.np.ccs.expr.FilterSet;
+import de.jojomodding.np.ccs.expr.Parallel;
+import de.jojomodding.np.ccs.expr.Restrict;
+import de.jojomodding.np.ccs.expr.TransitionSet;
+import de.jojomodding.np.lts.Action;
+import de.jojomodding.np.lts.LTS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Explores the reachable fragment of an expression with a static parallel structure, i.e. a parallel composition
+ * wrapped in restrictions. A successor of such an expression only replaces some operands of the composition, so each
+ * state is stored as the vector of the ids of its operands, the local states. All components share a single table of
+ * local states, and each local state is derived only once.
+ * <p>
+ * States are numbered in breadth-first order. Instances are not thread safe.
+ */
+public class ProcessVectorExploration implements AutoCloseable {
+
+    /**
+     * Up to this many components, synchronisation partners are found by checking all pairs of components
+     */
+    private static final int SCAN_LIMIT = 8;
+
+    private final CCSTransitionDerivation derivation;
+    /**
+     * The restrictions around the composition, innermost first
+     */
+    private final List<FilterSet> filters;
+    private final boolean composed;
+    private final Map<CCSExpression, Integer> localIds;
+    private final List<LocalState> localStates;
+    private final StateStore states;
+    private boolean partialOrderReduction;
+    /**
+     * The positions of each group of components that start in the same local state and have at least two members,
+     * or null if symmetry reduction is disabled
+     */
+    private int[][] symmetryGroups;
+    /**
+     * For each component, the visible actions it can never perform, neither alone nor synchronised
+     */
+    private List<Set<Action>> deadActions;
+    /**
+     * For each component, the restricted actions it can only ever synchronise on with a single other component,
+     * mapped to that component
+     */
+    private List<Map<Action, Integer>> privatePartners;
+    /**
+     * Whether the only step of a local state must never be taken alone, by component and local state id
+     */
+    private Map<Long, Boolean> sticky;
+    private boolean explored;
+    private LTS<Integer> lts;
+
+    /**
+     * Prepares the exploration of an expression. If it is not a parallel composition wrapped in restrictions, it is
+     * treated as a single component. Variables are not unfolded to find the structure. The states are stored on the heap.
+     * @param derivation derives the local states
+     * @param base the expression from where to start exploring
+     */
+    public ProcessVectorExploration(CCSTransitionDerivation derivation, CCSExpression base) {
+        this(derivation, base, HeapStateStore::new);
+    }
+
+    /**
+     * Prepares the exploration of an expression, storing the states in a custom store
+     * @param derivation derives the local states
+     * @param base the expression from where to start exploring
+     * @param stores constructs the state store, given the width of the vectors, which is the number of components
+     */
+    public ProcessVectorExploration(CCSTransitionDerivation derivation, CCSExpression base, IntFunction<? extends StateStore> stores) {
+        this.derivation = derivation;
+        this.localIds = new HashMap<>();
+        this.localStates = new ArrayList<>();
+        List<FilterSet> filters = new ArrayList<>();
+        while (base instanceof Restrict) {
+            filters.add(((Restrict) base).getFilter());
+            base = ((Restrict) base).getExpression();
+        }
+        Collections.reverse(filters);
+        this.filters = List.copyOf(filters);
+        this.composed = base instanceof Parallel;
+        List<CCSExpression> components = composed ? ((Parallel) base).getOperands() : List.of(base);
+        int[] start = new int[components.size()];
+        for (int i = 0; i < start.length; i++)
+            start[i] = localId(components.get(i));
+        this.states = stores.apply(start.length);
+        states.add(start);
+    }
+
+    /**
+     * Enables or disables partial-order reduction, which is disabled by default. Must be set before exploring.
+     * <p>
+     * With reduction, a state only takes a single internal step if that step is independent of everything else that
+     * might ever happen before it, so exploring the interleavings with the other transitions is redundant. This is the
+     * case for
+     * <ul>
+     *     <li>the only internal step of a component that can not perform any other transition that might ever be
+     *     enabled, and</li>
+     *     <li>the only synchronisation of two components that can not perform any other transition that might ever be
+     *     enabled, on a restricted channel that no third component ever uses.</li>
+     * </ul>
+     * The dependencies between the components are over-approximated from the expressions: the actions a component
+     * might ever perform are collected by {@link CCSTransitionDerivation#getAlphabet}, and an action can never be
+     * enabled if the restrictions forbid it and no other component ever performs its inverse. To not postpone other
+     * transitions forever, every cycle of the reduced LTS must contain a fully explored state. A step taken alone is the
+     * only step of each component taking part, so in such a cycle, each component that moves runs through a cycle of
+     * its only steps. Each such cycle gets one sticky step that is never taken alone, unless it contains a step that can
+     * never be taken alone anyway, or, without symmetry reduction, synchronises only with components with a larger
+     * index. Then the component with the largest index that moves in a cycle of the reduced LTS takes a sticky step in
+     * it.
+     * <p>
+     * The reduced LTS is branching bisimilar, hence weakly bisimilar, to the full one, so it has the same weak traces.
+     * It also contains exactly the deadlock states of the full one. It is not strongly bisimilar in general, and usually
+     * has far fewer states.
+     */
+    public void setPartialOrderReduction(boolean partialOrderReduction) {
+        if (explored)
+            throw new IllegalStateException("The state space was already explored!");
+        this.partialOrderReduction = partialOrderReduction;
+    }
+
+    /**
+     * Enables or disables symmetry reduction, which is disabled by default. Must be set before exploring.
+     * <p>
+     * With reduction, components that start in the same local state, e.g. the copies in {@code X | X | X}, are
+     * interchangeable, so states that only differ by a permutation of their local states are identified. Each state
+     * is stored with the local states of each such group sorted by id, so a group of N copies of a process with L local
+     * states only has binomially many, rather than L<sup>N</sup>, combinations. Since the parallel composition is
+     * commutative, the reduced LTS is strongly bisimilar to the full one. Its states decode to permutations of the
+     * reachable expressions.
+     */
+    public void setSymmetryReduction(boolean symmetryReduction) {
+        if (explored)
+            throw new IllegalStateException("The state space was already explored!");
+        this.symmetryGroups = symmetryReduction ? symmetryGroups(getVector(0)) : null;
+    }
+
+    /**
+     * Groups the positions of the components with equal start states
+     */
+    private static int[][] symmetryGroups(int[] start) {
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < start.length; i++)
+            groups.computeIfAbsent(start[i], x -> new ArrayList<>()).add(i);
+        return groups.values().stream()
+                     .filter(g -> g.size() > 1)
+                     .map(g -> g.stream().mapToInt(Integer::intValue).toArray())
+                     .toArray(int[][]::new);
+    }
+
+    public int getComponentCount() {
+        return states.width();
+    }
+
+    /**
+     * The number of states discovered so far
+     */
+    public int getStateCount() {
+        return states.size();
+    }
+
+    /**
+     * The number of distinct local states discovered so far, over all components
+     */
+    public int getLocalStateCount() {
+        return localStates.size();
+    }
+
+    /**
+     * The expression with the given local state id
+     */
+    public CCSExpression getLocalState(int id) {
+        return localStates.get(id).expression;
+    }
+
+    /**
+     * The vector of local state ids of a state
+     */
+    public int[] getVector(int state) {
+        int[] v = new int[states.width()];
+        states.get(state, v);
+        return v;
+    }
+
+    /**
+     * Reconstructs the expression a state stands for
+     */
+    public CCSExpression decode(int state) {
+        int[] v = getVector(state);
+        CCSExpression e;
+        if (composed) {
+            List<CCSExpression> operands = new ArrayList<>(v.length);
+            for (int id : v)
+                operands.add(getLocalState(id));
+            e = Factory.intern(new Parallel(operands));
+        } else {
+            e = getLocalState(v[0]);
+        }
+        for (FilterSet f : filters)
+            e = Factory.restrict(e, f);
+        return e;
+    }
+
+    /**
+     * Explores all reachable states. Only the first call explores, later calls return the same LTS.
+     * @return the reachable LTS, whose states are numbered as in {@link #decode(int)}. The start state is 0
+     */
+    public LTS<Integer> explore() {
+        if (lts == null) {
+            Set<LTS.Transitions<Integer>> transitions = new HashSet<>();
+            explore((s, a, t) -> transitions.add(new LTS.Transitions<>(s, a, t)));
+            List<Integer> stateList = IntStream.range(0, states.size()).boxed().collect(Collectors.toUnmodifiableList());
+            lts = new LTS<>(stateList, transitions, 0);
+        }
+        return lts;
+    }
+
+    /**
+     * Explores all reachable states, passing the transitions to a consumer instead of building an LTS. Thus only the
+     * state store and the local states are kept in memory. This can only be done once.
+     * @param onTransition called for each transition of each explored state, possibly more than once
+     */
+    public void explore(TransitionConsumer onTransition) {
+        if (explored)
+            throw new IllegalStateException("The state space was already explored!");
+        explored = true;
+        int n = states.width();
+        int[] v = new int[n], w = new int[n];
+        if (partialOrderReduction) {
+            List<Set<Action>> alphabets = alphabets(getVector(0));
+            deadActions = deadActions(alphabets);
+            privatePartners = privatePartners(alphabets);
+            sticky = new HashMap<>();
+        }
+        //states are numbered in the order they are discovered, so the table doubles as the breadth-first queue
+        for (int s = 0; s < states.size(); s++) {
+            states.get(s, v);
+            if (deadActions != null && exploreReduced(s, v, w, onTransition))
+                continue;
+            for (int i = 0; i < n; i++) {
+                LocalState ls = local(v[i]);
+                for (int k = 0; k < ls.actions.length; k++) {
+                    if (!ls.admitted[k])
+                        continue;
+                    for (int succ : ls.successors[k]) {
+                        System.arraycopy(v, 0, w, 0, n);
+                        w[i] = succ;
+                        onTransition.accept(s, ls.actions[k], target(w));
+                    }
+                }
+            }
+            Map<Action, List<Integer>> offeredBy = n <= SCAN_LIMIT ? null : offeredBy(v);
+            for (int i = 0; i < n; i++) {
+                LocalState li = local(v[i]);
+                for (int k = 0; k < li.actions.length; k++) {
+                    Action a = li.actions[k];
+                    if (a.isInternal())
+                        continue;
+                    Action inverse = a.inverse();
+                    if (offeredBy == null) {
+                        for (int j = i + 1; j < n; j++)
+                            synchronise(s, v, w, i, k, j, inverse, onTransition);
+                    } else {
+                        for (int j : offeredBy.getOrDefault(inverse, List.of()))
+                            if (j > i)
+                                synchronise(s, v, w, i, k, j, inverse, onTransition);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases the state store
+     */
+    @Override
+    public void close() {
+        states.close();
+    }
+
+    /**
+     * Only explores a single internal step, if there is one that is independent of everything else, see
+     * {@link #setPartialOrderReduction(boolean)}
+     * @return whether the state was explored
+     */
+    private boolean exploreReduced(int s, int[] v, int[] w, TransitionConsumer onTransition) {
+        for (int i = 0; i < v.length; i++) {
+            LocalState li = local(v[i]);
+            int k = onlyStep(li, deadActions.get(i));
+            if (k < 0 || isSticky(i, v[i]))
+                continue;
+            System.arraycopy(v, 0, w, 0, v.length);
+            w[i] = li.successors[k][0];
+            if (!li.actions[k].isInternal()) {
+                Integer j = li.admitted[k] ? null : privatePartners.get(i).get(li.actions[k]);
+                //each pair is only tried from its first component
+                if (j == null || j < i)
+                    continue;
+                LocalState lj = local(v[j]);
+                int kj = onlyStep(lj, deadActions.get(j));
+                if (kj < 0 || lj.actions[kj] != li.actions[k].inverse() || isSticky(j, v[j]))
+                    continue;
+                w[j] = lj.successors[kj][0];
+            }
+            onTransition.accept(s, Action.tau(), target(w));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Decides whether the only step of a local state of a component is sticky, see
+     * {@link #setPartialOrderReduction(boolean)}. On each cycle of only steps, the step of the local state with the
+     * smallest id is sticky if any is
+     */
+    private boolean isSticky(int component, int id) {
+        long key = ((long) component << 32) | id;
+        Boolean known = sticky.get(key);
+        if (known != null)
+            return known;
+        Set<Integer> visited = new HashSet<>();
+        //whether the path contains a step that is never taken alone, a synchronisation, and one with a smaller partner
+        boolean cycle = false, neverAlone = false, synchronises = false, toSmaller = false, smallest = true;
+        //each local state has at most one only step, so this follows a single path
+        for (int x = id; ; ) {
+            LocalState lx = local(x);
+            int k = onlyStep(lx, deadActions.get(component));
+            if (k < 0)
+                break;
+            if (!lx.actions[k].isInternal()) {
+                Integer partner = lx.admitted[k] ? null : privatePartners.get(component).get(lx.actions[k]);
+                neverAlone |= partner == null;
+                //symmetry reduction permutes the components, so their order can not be relied on then
+                toSmaller |= partner != null && (symmetryGroups != null || partner < component);
+                synchronises = true;
+            }
+            x = lx.successors[k][0];
+            if (x == id) {
+                cycle = true;
+                break;
+            }
+            if (!visited.add(x))
+                break;
+            smallest &= id < x;
+        }
+        boolean result = cycle && smallest && !neverAlone && (!synchronises || toSmaller);
+        sticky.put(key, result);
+        return result;
+    }
+
+    /**
+     * Finds the only transition of a local state that might ever be enabled, if it has a single successor
+     * @param ls the local state
+     * @param dead the actions the component can never perform
+     * @return the index of the action of the transition, or -1 if there is none or the local state might perform
+     * anything else
+     */
+    private static int onlyStep(LocalState ls, Set<Action> dead) {
+        int only = -1;
+        for (int k = 0; k < ls.actions.length; k++) {
+            if (dead.contains(ls.actions[k]))
+                continue;
+            if (only >= 0 || ls.successors[k].length != 1)
+                return -1;
+            only = k;
+        }
+        return only;
+    }
+
+    /**
+     * Over-approximates the actions each component can ever perform
+     * @param start the start vector, whose local states determine what each component can ever do
+     */
+    private List<Set<Action>> alphabets(int[] start) {
+        List<Set<Action>> alphabets = new ArrayList<>(start.length);
+        for (int id : start)
+            alphabets.add(derivation.getAlphabet(getLocalState(id)));
+        return alphabets;
+    }
+
+    /**
+     * Finds the visible actions each component can never perform
+     * @param alphabets the actions each component can ever perform
+     */
+    private List<Set<Action>> deadActions(List<Set<Action>> alphabets) {
+        Map<Action, Integer> performers = new HashMap<>();
+        for (Set<Action> alphabet : alphabets)
+            alphabet.forEach(a -> performers.merge(a, 1, Integer::sum));
+        List<Set<Action>> dead = new ArrayList<>(alphabets.size());
+        for (Set<Action> alphabet : alphabets) {
+            Set<Action> d = new HashSet<>();
+            for (Action a : alphabet) {
+                if (a.isInternal() || admits(a))
+                    continue;
+                //the number of other components that might synchronise with a
+                int partners = performers.getOrDefault(a.inverse(), 0) - (alphabet.contains(a.inverse()) ? 1 : 0);
+                if (partners == 0)
+                    d.add(a);
+            }
+            dead.add(d);
+        }
+        return dead;
+    }
+
+    /**
+     * Finds the restricted actions each component can only synchronise on with one other component, because no third
+     * component ever performs the action or its inverse
+     * @param alphabets the actions each component can ever perform
+     */
+    private List<Map<Action, Integer>> privatePartners(List<Set<Action>> alphabets) {
+        Map<Action, Set<Integer>> performers = new HashMap<>();
+        for (int i = 0; i < alphabets.size(); i++)
+            for (Action a : alphabets.get(i))
+                performers.computeIfAbsent(a, x -> new HashSet<>()).add(i);
+        List<Map<Action, Integer>> partners = new ArrayList<>(alphabets.size());
+        for (int i = 0; i < alphabets.size(); i++) {
+            Map<Action, Integer> p = new HashMap<>();
+            for (Action a : alphabets.get(i)) {
+                if (a.isInternal() || admits(a))
+                    continue;
+                Set<Integer> users = new HashSet<>(performers.get(a));
+                users.addAll(performers.getOrDefault(a.inverse(), Set.of()));
+                users.remove(i);
+                if (users.size() == 1)
+                    p.put(a, users.iterator().next());
+            }
+            partners.add(p);
+        }
+        return partners;
+    }
+
+    /**
+     * Indexes which components can perform which visible actions in the state v, in ascending order of the components
+     */
+    private Map<Action, List<Integer>> offeredBy(int[] v) {
+        Map<Action, List<Integer>> offeredBy = new HashMap<>();
+        for (int i = 0; i < v.length; i++)
+            for (Action a : local(v[i]).actions)
+                if (!a.isInternal())
+                    offeredBy.computeIfAbsent(a, x -> new ArrayList<>()).add(i);
+        return offeredBy;
+    }
+
+    private void synchronise(int s, int[] v, int[] w, int i, int k, int j, Action inverse, TransitionConsumer onTransition) {
+        LocalState li = local(v[i]), lj = local(v[j]);
+        int kj = lj.bucket(inverse);
+        if (kj < 0)
+            return;
+        for (int l : li.successors[k]) {
+            for (int r : lj.successors[kj]) {
+                System.arraycopy(v, 0, w, 0, v.length);
+                w[i] = l;
+                w[j] = r;
+                onTransition.accept(s, Action.tau(), target(w));
+            }
+        }
+    }
+
+    /**
+     * Receives the transitions between explored states
+     */
+    @FunctionalInterface
+    public interface TransitionConsumer {
+        void accept(int source, Action a, int target);
+    }
+
+    private int target(int[] w) {
+        if (symmetryGroups != null)
+            canonicalise(w);
+        int t = states.add(w);
+        return t < 0 ? ~t : t;
+    }
+
+    /**
+     * Sorts the local states within each symmetry group
+     */
+    private void canonicalise(int[] w) {
+        for (int[] group : symmetryGroups) {
+            int[] ids = new int[group.length];
+            for (int x = 0; x < group.length; x++)
+                ids[x] = w[group[x]];
+            Arrays.sort(ids);
+            for (int x = 0; x < group.length; x++)
+                w[group[x]] = ids[x];
+        }
+    }
+
+    private int localId(CCSExpression e) {
+        Integer id = localIds.get(e);
+        if (id != null)
+            return id;
+        id = localStates.size();
+        localIds.put(e, id);
+        localStates.add(new LocalState(e));
+        return id;
+    }
+
+    /**
+     * The local state with the given id, derived if it was not yet
+     */
+    private LocalState local(int id) {
+        LocalState ls = localStates.get(id);
+        if (ls.actions == null) {
+            TransitionSet ts = new TransitionSet();
+            derivation.derive(ls.expression, ts);
+            List<Action> actions = ts.actions();
+            Action[] as = actions.toArray(new Action[0]);
+            boolean[] admitted = new boolean[as.length];
+            int[][] successors = new int[as.length][];
+            for (int k = 0; k < as.length; k++) {
+                admitted[k] = admits(as[k]);
+                List<CCSExpression> succ = ts.successors(as[k]);
+                successors[k] = new int[succ.size()];
+                for (int x = 0; x < successors[k].length; x++)
+                    successors[k][x] = localId(succ.get(x));
+            }
+            ls.admitted = admitted;
+            ls.successors = successors;
+            ls.actions = as;
+        }
+        return ls;
+    }
+
+    private boolean admits(Action a) {
+        for (FilterSet f : filters)
+            if (!f.admits(a))
+                return false;
+        return true;
+    }
+
+    /**
+     * A local state together with its derived transitions, grouped by action
+     */
+    private static final class LocalState {
+        private final CCSExpression expression;
+        private Action[] actions;
+        /**
+         * Whether the restrictions admit each action on its own
+         */
+        private boolean[] admitted;
+        private int[][] successors;
+
+        private LocalState(CCSExpression expression) {
+            this.expression = expression;
+        }
+
+        private int bucket(Action a) {
+            for (int k = 0; k < actions.length; k++)
+                if (actions[k] == a)
+                    return k;
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package de.jojomodding.np.algo;
+
+/**
+ * A partition of the elements 0 to n-1 into sets, which can be refined by marking elements and then splitting each set
+ * into its marked and unmarked elements. The elements of each set are kept contiguous, with the marked ones first, so
+ * marking is constant time and splitting takes time linear in the size of the smaller part.
+ * <p>
+ * Newly split off sets are numbered consecutively, and always get the smaller part of the set they were split from.
+ */
+final class RefinablePartition {
+
+    private final int[] elements, location, setOf;
+    private final int[] first, past, marked, parent;
+    private final int[] touched;
+    private int sets, touchedCount;
+
+    /**
+     * Constructs the partition with the given initial sets
+     * @param initialSetOf the set of each element, all sets between 0 and setCount-1 must be non-empty
+     */
+    RefinablePartition(int[] initialSetOf, int setCount) {
+        int n = initialSetOf.length;
+        this.elements = new int[n];
+        this.location = new int[n];
+        this.setOf = initialSetOf.clone();
+        this.first = new int[n + 1];
+        this.past = new int[n + 1];
+        this.marked = new int[n + 1];
+        this.parent = new int[n + 1];
+        for (int s = 0; s <= n; s++)
+            parent[s] = s;
+        this.touched = new int[n + 1];
+        this.sets = setCount;
+        //sort the elements by their set
+        for (int e = 0; e < n; e++)
+            past[setOf[e]]++;
+        for (int s = 1; s < setCount; s++)
+            past[s] += past[s - 1];
+        for (int e = n - 1; e >= 0; e--) {
+            int i = --past[setOf[e]];
+            elements[i] = e;
+            location[e] = i;
+        }
+        for (int s = 0; s < setCount; s++) {
+            first[s] = past[s];
+            past[s] = s + 1 < setCount ? past[s + 1] : n;
+        }
+    }
+
+    int size() {
+        return sets;
+    }
+
+    int setOf(int e) {
+        return setOf[e];
+    }
+
+    /**
+     * The position of the first element of set s
+     */
+    int first(int s) {
+        return first[s];
+    }
+
+    /**
+     * The position after the last element of set s
+     */
+    int past(int s) {
+        return past[s];
+    }
+
+    /**
+     * The set that s was split off from, or s itself for the initial sets
+     */
+    int parentOf(int s) {
+        return parent[s];
+    }
+
+    /**
+     * The element at position i
+     */
+    int element(int i) {
+        return elements[i];
+    }
+
+    /**
+     * Marks an element, does nothing if it is marked already
+     */
+    void mark(int e) {
+        int s = setOf[e], i = location[e], j = first[s] + marked[s];
+        if (i < j)
+            return;
+        elements[i] = elements[j];
+        location[elements[i]] = i;
+        elements[j] = e;
+        location[e] = j;
+        if (marked[s]++ == 0)
+            touched[touchedCount++] = s;
+    }
+
+    /**
+     * Splits every set with marked elements into the marked and the unmarked ones, and removes all marks
+     */
+    void split() {
+        while (touchedCount > 0) {
+            int s = touched[--touchedCount], j = first[s] + marked[s];
+            marked[s] = 0;
+            if (j == past[s])
+                continue;
+            //the new set gets the smaller part
+            int z = sets++;
+            parent[z] = s;
+            if (j - first[s] <= past[s] - j) {
+                first[z] = first[s];
+                past[z] = j;
+                first[s] = j;
+            } else {
+                past[z] = past[s];
+                first[z] = j;
+                past[s] = j;
+            }
+            for (int i = first[z]; i < past[z]; i++)
+                setOf[elements[i]] = z;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package de.jojomodding.np.algo;
+
+/**
+ * The order in which the states of a reachable fragment are explored
+ */
+public enum SearchOrder {
+    /**
+     * Explores states in order of their distance from the start
+     */
+    BREADTH_FIRST,
+    /**
+     * Explores the most recently discovered state first
+     */
+    DEPTH_FIRST
+}
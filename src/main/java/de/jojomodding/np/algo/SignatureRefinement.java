@@ -0,0 +1,110 @@
+package de.jojomodding.np.algo;
+
+import de.jojomodding.np.lts.CompactLTS;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Computes bisimilarity by signature refinement on all cores. The signature of a state is its block together with the
+ * set of pairs of an action and the block of a successor. Each round computes all signatures in parallel, and states
+ * with equal signatures form the blocks of the next round, until the number of blocks stays the same.
+ * <p>
+ * Each round takes O(m) work, but there can be up to n rounds, so this is slower than {@link StrongBisimulation} on a
+ * single core. It wins on many cores for LTSs whose bisimilarity classes are told apart within few steps.
+ */
+public class SignatureRefinement {
+
+    private SignatureRefinement() {
+    }
+
+    /**
+     * Computes the strong bisimilarity classes
+     * @return the class of each state, numbered from 0 in the order of their first states
+     */
+    public static int[] strongClasses(CompactLTS lts) {
+        int n = lts.getStateCount();
+        int[] blocks = new int[n];
+        int count = n == 0 ? 0 : 1;
+        while (true) {
+            int[] current = blocks;
+            Map<Signature, Integer> ids = new ConcurrentHashMap<>();
+            AtomicInteger next = new AtomicInteger();
+            int[] refined = new int[n];
+            IntStream.range(0, n).parallel().forEach(s -> refined[s] = ids.computeIfAbsent(signature(lts, current, s), $ -> next.getAndIncrement()));
+            if (ids.size() == count)
+                return renumber(current, count);
+            blocks = refined;
+            count = ids.size();
+        }
+    }
+
+    /**
+     * Computes the weak bisimilarity classes, as the strong bisimilarity classes of the saturated LTS
+     * @return the class of each state, numbered from 0
+     */
+    public static int[] weakClasses(CompactLTS lts) {
+        WeakTransitions weak = new WeakTransitions(lts);
+        int[] saturated = strongClasses(weak.saturate());
+        int[] classes = new int[lts.getStateCount()];
+        for (int s = 0; s < classes.length; s++)
+            classes[s] = saturated[weak.componentOf(s)];
+        return classes;
+    }
+
+    private static Signature signature(CompactLTS lts, int[] blocks, int s) {
+        long[] pairs = new long[lts.outEnd(s) - lts.outStart(s)];
+        for (int i = lts.outStart(s); i < lts.outEnd(s); i++)
+            pairs[i - lts.outStart(s)] = ((long) lts.outAction(i) << 32) | blocks[lts.outTarget(i)];
+        Arrays.sort(pairs);
+        int distinct = 0;
+        for (int i = 0; i < pairs.length; i++)
+            if (i == 0 || pairs[i] != pairs[i - 1])
+                pairs[distinct++] = pairs[i];
+        return new Signature(blocks[s], Arrays.copyOf(pairs, distinct));
+    }
+
+    /**
+     * Numbers the blocks in the order of their first states, since the parallel rounds number them arbitrarily
+     */
+    private static int[] renumber(int[] blocks, int count) {
+        int[] ids = new int[count];
+        Arrays.fill(ids, -1);
+        int next = 0;
+        int[] classes = new int[blocks.length];
+        for (int s = 0; s < blocks.length; s++) {
+            if (ids[blocks[s]] < 0)
+                ids[blocks[s]] = next++;
+            classes[s] = ids[blocks[s]];
+        }
+        return classes;
+    }
+
+    private static final class Signature {
+        private final int block;
+        private final long[] pairs;
+        private final int hash;
+
+        Signature(int block, long[] pairs) {
+            this.block = block;
+            this.pairs = pairs;
+            this.hash = 31 * block + Arrays.hashCode(pairs);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Signature)) return false;
+            Signature that = (Signature) o;
+            return hash == that.hash && block == that.block && Arrays.equals(pairs, that.pairs);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package de.jojomodding.np.algo;
+
+import de.jojomodding.np.ccs.expr.CCSExpression;
+import de.jojomodding.np.lts.Action;
+import de.jojomodding.np.util.Pair;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Runs batches of random walks through the LTS of an expression on all cores, without storing the walks, and aggregates
+ * statistics about them. This samples the behaviour of systems too big to explore.
+ * <p>
+ * Each step chooses uniformly among the transitions of the current state, like
+ * {@link CCSTransitionDerivation#randomWalk(CCSExpression, boolean)}. Walks are split into chunks, each with its own
+ * {@link SplittableRandom} split off the seed in a fixed order, so a batch is reproducible no matter how the chunks
+ * are scheduled.
+ */
+public class Simulation {
+
+    private static final int CHUNK_SIZE = 256;
+
+    private final CCSTransitionDerivation derivation;
+    private final CCSExpression start;
+    private final int maxLength;
+    private final boolean canTerminateEarly;
+
+    /**
+     * Receives the steps of all walks. It is called from multiple threads at once, and the steps of different walks
+     * interleave, but the steps of a single walk arrive in order
+     */
+    @FunctionalInterface
+    public interface StepSink {
+        void accept(long walk, int step, CCSExpression source, Action a, CCSExpression target);
+    }
+
+    /**
+     * Prepares a simulation
+     * @param derivation derives the transitions. Its cache is shared by all workers
+     * @param start the start state of each walk
+     * @param maxLength the maximal number of steps of a walk
+     * @param canTerminateEarly whether a walk may stop in a state that has transitions
+     */
+    public Simulation(CCSTransitionDerivation derivation, CCSExpression start, int maxLength, boolean canTerminateEarly) {
+        if (maxLength < 0)
+            throw new IllegalArgumentException("The maximal length must not be negative, not " + maxLength + "!");
+        this.derivation = derivation;
+        this.start = start;
+        this.maxLength = maxLength;
+        this.canTerminateEarly = canTerminateEarly;
+    }
+
+    /**
+     * Runs a batch of walks
+     * @param walks the number of walks
+     * @param seed the seed, which determines all walks
+     * @return the statistics of all walks
+     */
+    public SimulationStatistics run(long walks, long seed) {
+        return run(walks, seed, null);
+    }
+
+    /**
+     * Runs a batch of walks, streaming their steps to a sink
+     * @param walks the number of walks
+     * @param seed the seed, which determines all walks
+     * @param sink receives each step, or null
+     * @return the statistics of all walks
+     */
+    public SimulationStatistics run(long walks, long seed, StepSink sink) {
+        if (walks < 0)
+            throw new IllegalArgumentException("The number of walks must not be negative, not " + walks + "!");
+        long chunkCount = (walks + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunkCount > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many walks: " + walks + "!");
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[(int) chunkCount];
+        for (int i = 0; i < randoms.length; i++)
+            randoms[i] = root.split();
+        return IntStream.range(0, randoms.length).parallel().mapToObj(i -> {
+            SimulationStatistics stats = new SimulationStatistics(maxLength);
+            long first = (long) i * CHUNK_SIZE;
+            for (long walk = first; walk < Math.min(walks, first + CHUNK_SIZE); walk++)
+                walk(walk, randoms[i], stats, sink);
+            return stats;
+        }).reduce(SimulationStatistics::merge).orElseGet(() -> new SimulationStatistics(maxLength));
+    }
+
+    private void walk(long walk, SplittableRandom random, SimulationStatistics stats, StepSink sink) {
+        CCSExpression state = start;
+        for (int step = 0; ; step++) {
+            if (step == maxLength) {
+                stats.endWalk(step, state, false, true);
+                return;
+            }
+            //reservoir sampling picks a uniform transition in a single pass, including the option to stop early
+            Pair<Action, CCSExpression> next = null;
+            int options = canTerminateEarly ? 1 : 0;
+            boolean stuck = true;
+            for (Pair<Action, CCSExpression> t : derivation.derive(state)) {
+                stuck = false;
+                if (random.nextInt(++options) == 0)
+                    next = t;
+            }
+            if (next == null) {
+                stats.endWalk(step, state, stuck, false);
+                return;
+            }
+            stats.step(next.first());
+            if (sink != null)
+                sink.accept(walk, step, state, next.first(), next.second());
+            state = next.second();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package de.jojomodding.np.algo;
+
+import de.jojomodding.np.ccs.expr.CCSExpression;
+import de.jojomodding.np.lts.Action;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregated statistics over a batch of random walks
+ */
+public final class SimulationStatistics {
+
+    private long walks;
+    private long steps;
+    private long stuck;
+    private long truncated;
+    private final Map<Action, Long> actionFrequencies;
+    private final Map<CCSExpression, Long> terminalStates;
+    /**
+     * The number of walks of each length
+     */
+    private long[] lengths;
+
+    SimulationStatistics(int maxLength) {
+        this.actionFrequencies = new HashMap<>();
+        this.terminalStates = new HashMap<>();
+        this.lengths = new long[Math.min(maxLength, 1023) + 1];
+    }
+
+    void step(Action a) {
+        steps++;
+        actionFrequencies.merge(a, 1L, Long::sum);
+    }
+
+    /**
+     * Records the end of a walk
+     * @param length the number of steps
+     * @param last the last state
+     * @param isStuck whether the walk ended because the last state has no transitions
+     * @param isTruncated whether the walk ended because it reached the maximal length
+     */
+    void endWalk(int length, CCSExpression last, boolean isStuck, boolean isTruncated) {
+        walks++;
+        if (length >= lengths.length)
+            lengths = Arrays.copyOf(lengths, Math.max(length + 1, 2 * lengths.length));
+        lengths[length]++;
+        if (isStuck) {
+            stuck++;
+            terminalStates.merge(last, 1L, Long::sum);
+        }
+        if (isTruncated)
+            truncated++;
+    }
+
+    /**
+     * Adds the statistics of another batch to these
+     */
+    SimulationStatistics merge(SimulationStatistics other) {
+        walks += other.walks;
+        steps += other.steps;
+        stuck += other.stuck;
+        truncated += other.truncated;
+        other.actionFrequencies.forEach((a, n) -> actionFrequencies.merge(a, n, Long::sum));
+        other.terminalStates.forEach((s, n) -> terminalStates.merge(s, n, Long::sum));
+        if (other.lengths.length > lengths.length)
+            lengths = Arrays.copyOf(lengths, other.lengths.length);
+        for (int i = 0; i < other.lengths.length; i++)
+            lengths[i] += other.lengths[i];
+        return this;
+    }
+
+    public long getWalks() {
+        return walks;
+    }
+
+    /**
+     * The total number of steps over all walks
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    public double getMeanLength() {
+        return walks == 0 ? 0 : (double) steps / walks;
+    }
+
+    /**
+     * The number of walks that ended in a state without transitions
+     */
+    public long getStuckWalks() {
+        return stuck;
+    }
+
+    /**
+     * The number of walks that were cut off at the maximal length
+     */
+    public long getTruncatedWalks() {
+        return truncated;
+    }
+
+    /**
+     * How often each action was taken, over all walks
+     */
+    public Map<Action, Long> getActionFrequencies() {
+        return Collections.unmodifiableMap(actionFrequencies);
+    }
+
+    /**
+     * How often each state without transitions ended a walk
+     */
+    public Map<CCSExpression, Long> getTerminalStateFrequencies() {
+        return Collections.unmodifiableMap(terminalStates);
+    }
+
+    /**
+     * The number of walks of each length, indexed by the length
+     */
+    public long[] getLengthHistogram() {
+        int n = lengths.length;
+        while (n > 0 && lengths[n - 1] == 0)
+            n--;
+        return Arrays.copyOf(lengths, n);
+    }
+
+    @Override
+    public String toString() {
+        return walks + " walks, mean length " + getMeanLength() + ", " + stuck + " stuck, " + truncated + " truncated, actions "
+               + actionFrequencies + ", " + terminalStates.size() + " distinct terminal states";
+    }
+}
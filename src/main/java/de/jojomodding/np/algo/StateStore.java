@@ -0,0 +1,39 @@
+package de.jojomodding.np.algo;
+
+/**
+ * Stores the set of visited states of an exploration as vectors of ints of a fixed width. Vectors are numbered in the
+ * order in which they were added, starting at 0.
+ * <p>
+ * Stores may hold memory outside of the heap, which is released by {@link #close()}.
+ */
+public interface StateStore extends AutoCloseable {
+
+    /**
+     * The number of entries of each vector
+     */
+    int width();
+
+    /**
+     * The number of vectors stored
+     */
+    int size();
+
+    /**
+     * Adds a vector, unless it is already present
+     * @param v the vector, which is copied
+     * @return the index of the vector if it was added, or the bitwise complement of its index if it was already present
+     */
+    int add(int[] v);
+
+    /**
+     * Copies the vector with the given index into v
+     */
+    void get(int index, int[] v);
+
+    /**
+     * Releases the resources of this store. It must not be used afterwards
+     */
+    @Override
+    default void close() {
+    }
+}
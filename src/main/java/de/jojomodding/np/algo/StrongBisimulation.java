@@ -0,0 +1,253 @@
+package de.jojomodding.np.algo;
+
+import de.jojomodding.np.lts.CompactLTS;
+
+import java.util.Arrays;
+
+/**
+ * Computes strong bisimilarity with the partition refinement algorithm of Paige and Tarjan, which runs in O(m log n)
+ * time for m transitions and n states.
+ * <p>
+ * The blocks of states are grouped into constellations, and each block is stable with respect to each constellation:
+ * for each action, either all or none of its states have a transition into the constellation. While a constellation
+ * consists of several blocks, the smaller of two of them is moved to a constellation of its own, and the blocks are
+ * split by which of the two parts they can reach. For this, each state counts its transitions into each constellation
+ * per action, so only the transitions into the moved block have to be looked at. Since that block is at most half of
+ * its constellation, each transition is looked at O(log n) times.
+ */
+final class StrongBisimulation {
+
+    private final int[] sources, actions;
+    private final int[] inFirst, incoming;
+    private final RefinablePartition blocks;
+
+    //the constellations, as doubly linked lists of blocks
+    private final int[] constellationOf, nextBlock, previousBlock;
+    private final int[] firstBlock, blockCount;
+    private final boolean[] compound;
+    private final int[] compoundStack;
+    private int compoundCount, constellations;
+
+    //the number of transitions per state, action and constellation, referenced by each of these transitions
+    private final int[] counterOf;
+    private int[] count, stamp, replacement;
+    private int[] free;
+    private int counters, freeCount;
+
+    private StrongBisimulation(CompactLTS lts) {
+        int n = lts.getStateCount(), m = lts.getTransitionCount();
+        sources = new int[m];
+        actions = new int[m];
+        for (int s = 0; s < n; s++) {
+            for (int i = lts.outStart(s); i < lts.outEnd(s); i++) {
+                sources[i] = s;
+                actions[i] = lts.outAction(i);
+            }
+        }
+        //the incoming transitions of each state, as indices of the outgoing ones
+        inFirst = new int[n + 1];
+        incoming = new int[m];
+        for (int i = 0; i < m; i++)
+            inFirst[lts.outTarget(i) + 1]++;
+        for (int s = 0; s < n; s++)
+            inFirst[s + 1] += inFirst[s];
+        int[] next = inFirst.clone();
+        for (int i = 0; i < m; i++)
+            incoming[next[lts.outTarget(i)]++] = i;
+
+        blocks = new RefinablePartition(new int[n], n == 0 ? 0 : 1);
+        constellationOf = new int[n + 1];
+        nextBlock = new int[n + 1];
+        previousBlock = new int[n + 1];
+        firstBlock = new int[n + 1];
+        blockCount = new int[n + 1];
+        compound = new boolean[n + 1];
+        compoundStack = new int[n + 1];
+        Arrays.fill(nextBlock, -1);
+        Arrays.fill(previousBlock, -1);
+        constellations = 1;
+        blockCount[0] = n == 0 ? 0 : 1;
+
+        counterOf = new int[m];
+        count = new int[Math.max(m, 1)];
+        stamp = new int[count.length];
+        replacement = new int[count.length];
+        free = new int[count.length];
+        //the rows are sorted by action, so the transitions of a state with the same action are adjacent
+        for (int i = 0; i < m; i++) {
+            counterOf[i] = i > 0 && sources[i] == sources[i - 1] && actions[i] == actions[i - 1] ? counterOf[i - 1] : newCounter();
+            count[counterOf[i]]++;
+        }
+    }
+
+    /**
+     * Computes the bisimilarity classes
+     * @return the class of each state, where the classes are numbered from 0
+     */
+    static int[] classes(CompactLTS lts) {
+        StrongBisimulation b = new StrongBisimulation(lts);
+        b.splitByActions(lts.getActionCount());
+        b.refine();
+        int[] classes = new int[lts.getStateCount()];
+        for (int s = 0; s < classes.length; s++)
+            classes[s] = b.blocks.setOf(s);
+        return classes;
+    }
+
+    /**
+     * Makes the initial block stable with respect to the initial constellation of all states, i.e. splits the states
+     * by the actions they can perform
+     */
+    private void splitByActions(int actionCount) {
+        int[] first = new int[actionCount + 1];
+        for (int i = 0; i < sources.length; i++)
+            if (isFirstOfCounter(i))
+                first[actions[i] + 1]++;
+        for (int a = 0; a < actionCount; a++)
+            first[a + 1] += first[a];
+        int[] statesByAction = new int[first[actionCount]], next = first.clone();
+        for (int i = 0; i < sources.length; i++)
+            if (isFirstOfCounter(i))
+                statesByAction[next[actions[i]]++] = sources[i];
+        for (int a = 0; a < actionCount; a++) {
+            int before = blocks.size();
+            for (int i = first[a]; i < first[a + 1]; i++)
+                blocks.mark(statesByAction[i]);
+            blocks.split();
+            splitOff(before);
+        }
+    }
+
+    private boolean isFirstOfCounter(int i) {
+        return i == 0 || counterOf[i] != counterOf[i - 1];
+    }
+
+    private void refine() {
+        int round = 0;
+        int[] touched = new int[sources.length], touchedSource = new int[sources.length], touchedNext = new int[sources.length];
+        int[] actionFirst = new int[sources.length + 1], actionStamp = new int[sources.length + 1], touchedActions = new int[sources.length];
+        while (compoundCount > 0) {
+            int c = compoundStack[--compoundCount];
+            compound[c] = false;
+            int b = firstBlock[c], b2 = nextBlock[b];
+            if (size(b2) < size(b))
+                b = b2;
+            moveToNewConstellation(b);
+            if (blockCount[c] > 1)
+                pushCompound(c);
+
+            //move the counters of the transitions into b to the new constellation, per state and action
+            round++;
+            int touchedCount = 0, actionCount = 0;
+            int[] states = new int[size(b)];
+            for (int i = 0; i < states.length; i++)
+                states[i] = blocks.element(blocks.first(b) + i);
+            for (int q : states) {
+                for (int j = inFirst[q]; j < inFirst[q + 1]; j++) {
+                    int t = incoming[j], k = counterOf[t];
+                    if (stamp[k] != round) {
+                        int r = newCounter();
+                        stamp[k] = round;
+                        replacement[k] = r;
+                        touched[touchedCount] = k;
+                        touchedSource[touchedCount] = sources[t];
+                        //group the touched counters by action
+                        int a = actions[t];
+                        if (actionStamp[a] != round) {
+                            actionStamp[a] = round;
+                            actionFirst[a] = -1;
+                            touchedActions[actionCount++] = a;
+                        }
+                        touchedNext[touchedCount] = actionFirst[a];
+                        actionFirst[a] = touchedCount++;
+                    }
+                    count[k]--;
+                    count[replacement[k]]++;
+                    counterOf[t] = replacement[k];
+                }
+            }
+
+            //split by whether a state can reach b, and then by whether it can reach the rest of the old constellation
+            for (int x = 0; x < actionCount; x++) {
+                int a = touchedActions[x];
+                int before = blocks.size();
+                for (int i = actionFirst[a]; i >= 0; i = touchedNext[i])
+                    blocks.mark(touchedSource[i]);
+                blocks.split();
+                splitOff(before);
+                before = blocks.size();
+                for (int i = actionFirst[a]; i >= 0; i = touchedNext[i])
+                    if (count[touched[i]] == 0)
+                        blocks.mark(touchedSource[i]);
+                blocks.split();
+                splitOff(before);
+                for (int i = actionFirst[a]; i >= 0; i = touchedNext[i])
+                    if (count[touched[i]] == 0)
+                        free[freeCount++] = touched[i];
+            }
+        }
+    }
+
+    private int size(int block) {
+        return blocks.past(block) - blocks.first(block);
+    }
+
+    /**
+     * Adds the blocks split off since there were before many to the constellations of the blocks they were split from
+     */
+    private void splitOff(int before) {
+        for (int z = before; z < blocks.size(); z++) {
+            int c = constellationOf[blocks.parentOf(z)];
+            addBlock(c, z);
+            if (blockCount[c] == 2)
+                pushCompound(c);
+        }
+    }
+
+    private void moveToNewConstellation(int b) {
+        int c = constellationOf[b];
+        if (previousBlock[b] >= 0)
+            nextBlock[previousBlock[b]] = nextBlock[b];
+        else
+            firstBlock[c] = nextBlock[b];
+        if (nextBlock[b] >= 0)
+            previousBlock[nextBlock[b]] = previousBlock[b];
+        blockCount[c]--;
+        nextBlock[b] = previousBlock[b] = -1;
+        addBlock(constellations++, b);
+    }
+
+    private void addBlock(int c, int b) {
+        constellationOf[b] = c;
+        previousBlock[b] = -1;
+        if (blockCount[c]++ > 0) {
+            nextBlock[b] = firstBlock[c];
+            previousBlock[firstBlock[c]] = b;
+        } else {
+            nextBlock[b] = -1;
+        }
+        firstBlock[c] = b;
+    }
+
+    private void pushCompound(int c) {
+        if (!compound[c]) {
+            compound[c] = true;
+            compoundStack[compoundCount++] = c;
+        }
+    }
+
+    private int newCounter() {
+        if (freeCount > 0) {
+            int k = free[--freeCount];
+            count[k] = 0;
+            return k;
+        }
+        if (counters == count.length) {
+            count = Arrays.copyOf(count, 2 * counters);
+            stamp = Arrays.copyOf(stamp, 2 * counters);
+            replacement = Arrays.copyOf(replacement, 2 * counters);
+            free = Arrays.copyOf(free, 2 * counters);
+        }
+        return counters++;
+    }
+}
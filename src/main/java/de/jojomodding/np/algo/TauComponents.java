@@ -0,0 +1,98 @@
+package de.jojomodding.np.algo;
+
+import de.jojomodding.np.lts.Action;
+import de.jojomodding.np.lts.CompactLTS;
+
+import java.util.Arrays;
+
+/**
+ * The strongly connected components of the τ transitions of an LTS, found by Tarjan's algorithm. The states of a
+ * component can reach each other silently, so they are branching and weakly bisimilar and can be collapsed into one.
+ * <p>
+ * Components are numbered in the order Tarjan's algorithm completes them, which is a reverse topological order: a τ
+ * transition between two different components always leads to one with a smaller number.
+ */
+final class TauComponents {
+
+    private final int[] componentOf;
+    private final int count;
+
+    TauComponents(CompactLTS lts) {
+        int n = lts.getStateCount(), tau = lts.getActionId(Action.tau());
+        componentOf = new int[n];
+        int[] index = new int[n], low = new int[n];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n], callStates = new int[n], callEdges = new int[n];
+        int stackSize = 0, indices = 0, components = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0)
+                continue;
+            //the recursion of Tarjan's algorithm, with an explicit call stack
+            int depth = 0;
+            callStates[0] = root;
+            callEdges[0] = lts.outStart(root);
+            index[root] = low[root] = indices++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while (depth >= 0) {
+                int v = callStates[depth], i = callEdges[depth];
+                while (i < lts.outEnd(v) && lts.outAction(i) != tau)
+                    i++;
+                if (i < lts.outEnd(v)) {
+                    callEdges[depth] = i + 1;
+                    int w = lts.outTarget(i);
+                    if (index[w] < 0) {
+                        index[w] = low[w] = indices++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        depth++;
+                        callStates[depth] = w;
+                        callEdges[depth] = lts.outStart(w);
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        onStack[w] = false;
+                        componentOf[w] = components;
+                    } while (w != v);
+                    components++;
+                }
+                if (--depth >= 0) {
+                    int u = callStates[depth];
+                    low[u] = Math.min(low[u], low[v]);
+                }
+            }
+        }
+        this.count = components;
+    }
+
+    int componentOf(int s) {
+        return componentOf[s];
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * The LTS over the components, without the τ transitions within a component, so that it has no τ cycles
+     */
+    CompactLTS collapse(CompactLTS lts) {
+        int tau = lts.getActionId(Action.tau());
+        CompactLTS.Builder b = CompactLTS.builder().ensureStates(count).setStart(componentOf[lts.getStart()]);
+        for (int s = 0; s < lts.getStateCount(); s++) {
+            for (int i = lts.outStart(s); i < lts.outEnd(s); i++) {
+                int t = lts.outTarget(i);
+                if (lts.outAction(i) != tau || componentOf[s] != componentOf[t])
+                    b.addTransition(componentOf[s], lts.getAction(lts.outAction(i)), componentOf[t]);
+            }
+        }
+        return b.build();
+    }
+}
@@ -0,0 +1,140 @@
+package de.jojomodding.np.algo;
+
+import de.jojomodding.np.lts.Action;
+import de.jojomodding.np.lts.CompactLTS;
+
+import java.util.BitSet;
+
+/**
+ * The weak transitions s =a=> t of an LTS, i.e. τ transitions, then an a transition, then τ transitions again, where
+ * the a transition is left out if a is τ.
+ * <p>
+ * The τ cycles are collapsed first, since the states on a cycle have the same weak transitions. All lookups are in terms
+ * of the resulting components, see {@link #componentOf(int)}. Since the components are in reverse topological order,
+ * the τ closures of all components are computed in a single pass each, as bit sets.
+ */
+public class WeakTransitions {
+
+    private final TauComponents components;
+    private final CompactLTS collapsed;
+    private final int tau;
+    /**
+     * The components each component reaches by τ transitions, and those reaching it, both including itself
+     */
+    private final BitSet[] tauAfter, tauBefore;
+
+    public WeakTransitions(CompactLTS lts) {
+        this.components = new TauComponents(lts);
+        this.collapsed = components.collapse(lts);
+        this.tau = collapsed.getActionId(Action.tau());
+        int n = collapsed.getStateCount();
+        this.tauAfter = new BitSet[n];
+        this.tauBefore = new BitSet[n];
+        //τ transitions lead to smaller components, so successors are done before their predecessors
+        for (int c = 0; c < n; c++) {
+            tauAfter[c] = new BitSet(c + 1);
+            tauAfter[c].set(c);
+            for (int i = collapsed.outStart(c); i < collapsed.outEnd(c); i++)
+                if (collapsed.outAction(i) == tau)
+                    tauAfter[c].or(tauAfter[collapsed.outTarget(i)]);
+        }
+        for (int c = n - 1; c >= 0; c--) {
+            tauBefore[c] = new BitSet();
+            tauBefore[c].set(c);
+            for (int i = collapsed.inStart(c); i < collapsed.inEnd(c); i++)
+                if (collapsed.inAction(i) == tau)
+                    tauBefore[c].or(tauBefore[collapsed.inSource(i)]);
+        }
+    }
+
+    /**
+     * The component of a state of the original LTS
+     */
+    public int componentOf(int s) {
+        return components.componentOf(s);
+    }
+
+    public int getComponentCount() {
+        return collapsed.getStateCount();
+    }
+
+    /**
+     * The LTS over the components, which has no τ cycles
+     */
+    public CompactLTS getCollapsed() {
+        return collapsed;
+    }
+
+    /**
+     * The components that c reaches by τ transitions, including c
+     */
+    public BitSet tauClosure(int c) {
+        return (BitSet) tauAfter[c].clone();
+    }
+
+    /**
+     * The components c' with c =a=> c'
+     */
+    public BitSet weakSuccessors(int c, Action a) {
+        int action = collapsed.getActionId(a);
+        if (action == tau)
+            return tauClosure(c);
+        BitSet successors = new BitSet();
+        if (action < 0)
+            return successors;
+        BitSet from = tauAfter[c];
+        for (int d = from.nextSetBit(0); d >= 0; d = from.nextSetBit(d + 1))
+            for (int i = collapsed.outStart(d); i < collapsed.outEnd(d); i++)
+                if (collapsed.outAction(i) == action)
+                    successors.or(tauAfter[collapsed.outTarget(i)]);
+        return successors;
+    }
+
+    /**
+     * The components c with c =a=> c' for some c' in targets
+     */
+    public BitSet weakPredecessors(BitSet targets, Action a) {
+        int action = collapsed.getActionId(a);
+        BitSet before = new BitSet();
+        for (int c = targets.nextSetBit(0); c >= 0; c = targets.nextSetBit(c + 1))
+            before.or(tauBefore[c]);
+        if (action == tau)
+            return before;
+        BitSet predecessors = new BitSet();
+        if (action < 0)
+            return predecessors;
+        for (int c = before.nextSetBit(0); c >= 0; c = before.nextSetBit(c + 1))
+            for (int i = collapsed.inStart(c); i < collapsed.inEnd(c); i++)
+                if (collapsed.inAction(i) == action)
+                    predecessors.or(tauBefore[collapsed.inSource(i)]);
+        return predecessors;
+    }
+
+    /**
+     * The LTS over the components that has a transition for each weak transition, including a τ loop on each component.
+     * Two states are weakly bisimilar iff their components are strongly bisimilar in it
+     */
+    public CompactLTS saturate() {
+        int n = collapsed.getStateCount(), actions = collapsed.getActionCount();
+        CompactLTS.Builder b = CompactLTS.builder().ensureStates(n).setStart(collapsed.getStart());
+        BitSet[] successors = new BitSet[actions];
+        for (int a = 0; a < actions; a++)
+            successors[a] = new BitSet(n);
+        for (int c = 0; c < n; c++) {
+            BitSet from = tauAfter[c];
+            for (int d = from.nextSetBit(0); d >= 0; d = from.nextSetBit(d + 1)) {
+                b.addTransition(c, Action.tau(), d);
+                for (int i = collapsed.outStart(d); i < collapsed.outEnd(d); i++)
+                    if (collapsed.outAction(i) != tau)
+                        successors[collapsed.outAction(i)].or(tauAfter[collapsed.outTarget(i)]);
+            }
+            for (int a = 0; a < actions; a++) {
+                BitSet to = successors[a];
+                for (int d = to.nextSetBit(0); d >= 0; d = to.nextSetBit(d + 1))
+                    b.addTransition(c, collapsed.getAction(a), d);
+                to.clear();
+            }
+        }
+        return b.build();
+    }
+}
@@ -4,9 +4,11 @@ import de.jojomodding.np.util.Pair;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -17,21 +19,25 @@ public class Binding {
 
     private final Function<String, Optional<CCSExpression>> base;
     private final List<String> domain;
+    private final Set<String> domainSet;
 
     public Binding(Map<String, CCSExpression> map) {
         this.base = s -> Optional.ofNullable(map.get(s));
         this.domain = new ArrayList<>(map.keySet());
+        this.domainSet = new HashSet<>(domain);
     }
 
     public Binding(Function<String, Optional<CCSExpression>> f) {
         this.base = f;
         this.domain = null;
+        this.domainSet = null;
     }
 
     public Binding(List<Pair<String, CCSExpression>> data) {
         Map<String, CCSExpression> map = data.stream().collect(Collectors.toMap(p -> p.first(), p -> p.second()));
         this.base = s -> Optional.of(map.get(s));
         this.domain = data.stream().map(Pair::first).collect(Collectors.toList());
+        this.domainSet = new HashSet<>(domain);
     }
 
     /**
@@ -40,7 +46,7 @@ public class Binding {
      * @return the expression mapped to it, if it exists
      */
     public Optional<CCSExpression> lookup(String var) {
-        if (domain != null && !domain.contains(var))
+        if (domainSet != null && !domainSet.contains(var))
             return Optional.empty();
         return base.apply(var);
     }
@@ -1,18 +1,40 @@
 package de.jojomodding.np.ccs.expr;
 
 import de.jojomodding.np.lts.Action;
-import de.jojomodding.np.util.Pair;
 
 import java.util.Set;
 import java.util.function.Function;
 
+/**
+ * A CCS expression. Expressions are immutable and compute their hash code and fingerprint once, on construction.
+ * Expressions constructed by the {@link de.jojomodding.np.Factory} are interned, so structurally equal expressions are
+ * usually the same object, and equality is then decided by identity or by the hash code.
+ */
 public abstract class CCSExpression {
 
+    private final int hash;
+    private final long fingerprint;
+
+    protected CCSExpression(int hash, long fingerprint) {
+        this.hash = hash;
+        this.fingerprint = fingerprint;
+    }
+
     @Override
     public abstract boolean equals(Object obj);
 
     @Override
-    public abstract int hashCode();
+    public final int hashCode() {
+        return hash;
+    }
+
+    /**
+     * A 64-bit hash of this expression, which unlike {@link #hashCode()} is long enough that distinct expressions
+     * are unlikely to collide. Channels are fingerprinted by their id, so fingerprints are only comparable within a run.
+     */
+    public final long fingerprint() {
+        return fingerprint;
+    }
 
     protected abstract String deparse(int level);
 
@@ -33,11 +55,30 @@ public abstract class CCSExpression {
      */
     public abstract Set<String> usedVariables();
 
+    /**
+     * Finds all actions this expression can perform, not counting the actions of the bodies of variables it uses.
+     * This over-approximates, i.e. it may include actions that can never be performed
+     */
+    public abstract Set<Action> usedActions();
+
     /**
      * Derives all action-sucessor-pairs for this expression, given an environment that derives these pairs for variables
      * @param env the environment
      * @return all derivable pairs
      */
-    public abstract Set<Pair<Action, CCSExpression>> deriveTransitions(Function<String, Set<Pair<Action, CCSExpression>>> env);
+    public TransitionSet deriveTransitions(Function<String, TransitionSet> env) {
+        TransitionSet ts = new TransitionSet();
+        deriveTransitions(env, ts);
+        return ts;
+    }
+
+    /**
+     * Derives all action-sucessor-pairs for this expression, given an environment that derives these pairs for variables,
+     * and passes them to a sink. Unlike {@link #deriveTransitions(Function)}, this does not collect the pairs, so the
+     * sink may receive a pair more than once.
+     * @param env the environment
+     * @param sink receives all derivable pairs
+     */
+    public abstract void deriveTransitions(Function<String, TransitionSet> env, TransitionSink sink);
 
 }
@@ -1,62 +1,112 @@
 package de.jojomodding.np.ccs.expr;
 
+import de.jojomodding.np.Factory;
 import de.jojomodding.np.lts.Action;
-import de.jojomodding.np.util.Pair;
+import de.jojomodding.np.util.Fingerprints;
 
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Objects;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
 
+/**
+ * The choice between two or more operands. The {@link Factory} flattens nested choices into a single node, so that big
+ * choices are handled iteratively.
+ */
 public class Choice extends CCSExpression {
 
-    private final CCSExpression left, right;
+    private final CCSExpression[] operands;
 
     public Choice(CCSExpression left, CCSExpression right) {
-        this.left = left;
-        this.right = right;
+        this(new CCSExpression[]{left, right});
+    }
+
+    /**
+     * Constructs the choice between all operands, which are not flattened
+     * @param operands at least two operands
+     */
+    public Choice(List<? extends CCSExpression> operands) {
+        this(operands.toArray(new CCSExpression[0]));
+    }
+
+    private Choice(CCSExpression[] operands) {
+        super(Arrays.hashCode(operands), fingerprint(operands));
+        if (operands.length < 2)
+            throw new IllegalArgumentException("A choice needs at least two operands, not " + operands.length + "!");
+        this.operands = operands;
+    }
+
+    private static long fingerprint(CCSExpression[] operands) {
+        long fp = 4;
+        for (CCSExpression e : operands)
+            fp = Fingerprints.combine(fp, e.fingerprint());
+        return fp;
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (o == null || getClass() != o.getClass() || hashCode() != o.hashCode()) return false;
         Choice choice = (Choice) o;
-        return left.equals(choice.left) &&
-               right.equals(choice.right);
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(left, right);
+        return Arrays.equals(operands, choice.operands);
     }
 
     @Override
     protected String deparse(int level) {
-        return wrap(level, 2, left.deparse(2) + " + " + right.deparse(1));
+        StringBuilder sb = new StringBuilder(operands[0].deparse(2));
+        for (int i = 1; i < operands.length; i++)
+            sb.append(" + ").append(operands[i].deparse(i == operands.length - 1 ? 1 : 2));
+        return wrap(level, 2, sb.toString());
     }
 
     @Override
     public Set<String> usedVariables() {
         HashSet<String> hs = new HashSet<>();
-        hs.addAll(left.usedVariables());
-        hs.addAll(right.usedVariables());
+        for (CCSExpression e : operands)
+            hs.addAll(e.usedVariables());
         return hs;
     }
 
     @Override
-    public Set<Pair<Action, CCSExpression>> deriveTransitions(Function<String, Set<Pair<Action, CCSExpression>>> env) {
-        HashSet<Pair<Action, CCSExpression>> hs = new HashSet<>();
-        hs.addAll(left.deriveTransitions(env));
-        hs.addAll(right.deriveTransitions(env));
-        return hs;
+    public Set<Action> usedActions() {
+        Set<Action> actions = new HashSet<>();
+        for (CCSExpression e : operands)
+            actions.addAll(e.usedActions());
+        return actions;
+    }
+
+    @Override
+    public void deriveTransitions(Function<String, TransitionSet> env, TransitionSink sink) {
+        for (CCSExpression e : operands)
+            e.deriveTransitions(env, sink);
+    }
+
+    /**
+     * All operands, in order
+     */
+    public List<CCSExpression> getOperands() {
+        return List.of(operands);
+    }
+
+    public int getOperandCount() {
+        return operands.length;
+    }
+
+    public CCSExpression getOperand(int i) {
+        return operands[i];
     }
 
     public CCSExpression getLeft() {
-        return left;
+        return operands[0];
     }
 
+    /**
+     * The right operand of this choice viewed as a binary one, i.e. the choice between all operands but the first
+     */
     public CCSExpression getRight() {
-        return right;
+        if (operands.length == 2)
+            return operands[1];
+        return Factory.intern(new Choice(Arrays.copyOfRange(operands, 1, operands.length)));
     }
 }
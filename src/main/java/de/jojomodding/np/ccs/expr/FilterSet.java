@@ -2,7 +2,9 @@ package de.jojomodding.np.ccs.expr;
 
 import de.jojomodding.np.lts.Action;
 import de.jojomodding.np.lts.Channel;
+import de.jojomodding.np.util.Fingerprints;
 
+import java.util.BitSet;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -15,16 +17,29 @@ public class FilterSet {
      */
     private final boolean isExclusive;
     private final Set<Channel> filtered;
+    /**
+     * the ids of the channels in filtered
+     */
+    private final BitSet filteredIds;
+    private final int hash;
+    private final long fingerprint;
 
     public FilterSet(boolean isExclusive, Set<Channel> filtered) {
         this.isExclusive = isExclusive;
         this.filtered = filtered;
+        this.filteredIds = new BitSet();
+        filtered.forEach(c -> filteredIds.set(c.id()));
+        this.hash = Objects.hash(isExclusive, filtered);
+        long fp = isExclusive ? 1 : 0;
+        for (long word : filteredIds.toLongArray())
+            fp = Fingerprints.combine(fp, word);
+        this.fingerprint = fp;
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (o == null || getClass() != o.getClass() || hash != o.hashCode()) return false;
         FilterSet filterSet = (FilterSet) o;
         return isExclusive == filterSet.isExclusive &&
                filtered.equals(filterSet.filtered);
@@ -32,11 +47,19 @@ public class FilterSet {
 
     @Override
     public int hashCode() {
-        return Objects.hash(isExclusive, filtered);
+        return hash;
+    }
+
+    /**
+     * A 64-bit hash of this filter set, see {@link CCSExpression#fingerprint()}
+     */
+    public long fingerprint() {
+        return fingerprint;
     }
 
     public boolean admits(Action a) {
-        return a.getChannel().map(c -> isExclusive != filtered.contains(c)).orElse(true);
+        int c = a.getChannelId();
+        return c < 0 || isExclusive != filteredIds.get(c);
     }
 
     @Override
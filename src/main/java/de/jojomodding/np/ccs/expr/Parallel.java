@@ -1,70 +1,186 @@
 package de.jojomodding.np.ccs.expr;
 
+import de.jojomodding.np.Factory;
 import de.jojomodding.np.lts.Action;
-import de.jojomodding.np.util.Pair;
+import de.jojomodding.np.util.Fingerprints;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
 
+/**
+ * The parallel composition of two or more operands. The {@link Factory} flattens nested compositions into a single
+ * node. A successor of a composition replaces the operands that moved and keeps all others, so it has the same number
+ * of operands. Operands that become compositions themselves are not flattened into it.
+ */
 public class Parallel extends CCSExpression {
 
-    private final CCSExpression left, right;
+    /**
+     * Up to this many operands, synchronisation partners are found by checking all pairs of operands
+     */
+    private static final int SCAN_LIMIT = 8;
+
+    private final CCSExpression[] operands;
 
     public Parallel(CCSExpression left, CCSExpression right) {
-        this.left = left;
-        this.right = right;
+        this(new CCSExpression[]{left, right});
+    }
+
+    /**
+     * Constructs the parallel composition of all operands, which are not flattened
+     * @param operands at least two operands
+     */
+    public Parallel(List<? extends CCSExpression> operands) {
+        this(operands.toArray(new CCSExpression[0]));
+    }
+
+    private Parallel(CCSExpression[] operands) {
+        super(Arrays.hashCode(operands), fingerprint(operands));
+        if (operands.length < 2)
+            throw new IllegalArgumentException("A parallel composition needs at least two operands, not " + operands.length + "!");
+        this.operands = operands;
+    }
+
+    private static long fingerprint(CCSExpression[] operands) {
+        long fp = 5;
+        for (CCSExpression e : operands)
+            fp = Fingerprints.combine(fp, e.fingerprint());
+        return fp;
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (o == null || getClass() != o.getClass() || hashCode() != o.hashCode()) return false;
         Parallel parallel = (Parallel) o;
-        return left.equals(parallel.left) &&
-               right.equals(parallel.right);
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(left, right);
+        return Arrays.equals(operands, parallel.operands);
     }
 
     @Override
     protected String deparse(int level) {
-        return wrap(level, 3, left.deparse(3) + " | " + right.deparse(2));
+        StringBuilder sb = new StringBuilder(operands[0].deparse(3));
+        for (int i = 1; i < operands.length; i++)
+            sb.append(" | ").append(operands[i].deparse(i == operands.length - 1 ? 2 : 3));
+        return wrap(level, 3, sb.toString());
     }
 
     @Override
     public Set<String> usedVariables() {
         HashSet<String> hs = new HashSet<>();
-        hs.addAll(left.usedVariables());
-        hs.addAll(right.usedVariables());
+        for (CCSExpression e : operands)
+            hs.addAll(e.usedVariables());
         return hs;
     }
 
     @Override
-    public Set<Pair<Action, CCSExpression>> deriveTransitions(Function<String, Set<Pair<Action, CCSExpression>>> env) {
-        Set<Pair<Action, CCSExpression>> res = new HashSet<>(), lr = left.deriveTransitions(env), rr = right.deriveTransitions(env);
-        lr.forEach(p -> res.add(new Pair<>(p.first(), new Parallel(p.second(), right))));
-        rr.forEach(p -> res.add(new Pair<>(p.first(), new Parallel(left, p.second()))));
-        Map<Action, Set<CCSExpression>> syncIntermediary = new HashMap<>();
-        lr.stream().filter(p -> !(p.first().isInternal())).forEach(p -> syncIntermediary.computeIfAbsent(p.first(), $ -> new HashSet<>()).add(p.second()));
-        rr.forEach(p -> {
-            Set<CCSExpression> lres = syncIntermediary.getOrDefault(p.first().inverse(), Set.of());
-            lres.forEach(lt -> res.add(new Pair<>(Action.tau(), new Parallel(lt, p.second()))));
-        });
-        return res;
+    public Set<Action> usedActions() {
+        Set<Action> actions = new HashSet<>();
+        for (CCSExpression e : operands)
+            actions.addAll(e.usedActions());
+        //the operands might synchronise on actions of the variables they use
+        actions.add(Action.tau());
+        return actions;
+    }
+
+    @Override
+    public void deriveTransitions(Function<String, TransitionSet> env, TransitionSink sink) {
+        int n = operands.length;
+        TransitionSet[] derived = new TransitionSet[n];
+        for (int i = 0; i < n; i++) {
+            derived[i] = operands[i].deriveTransitions(env);
+            int moving = i;
+            derived[i].forEach((a, s) -> sink.accept(a, replace(moving, s)));
+        }
+        //each operand is grouped by action, so synchronisation joins the buckets of an action with the inverse buckets
+        //of all later operands
+        Map<Action, List<Integer>> offeredBy = n <= SCAN_LIMIT ? null : offeredBy(derived);
+        for (int i = 0; i < n; i++) {
+            for (Action a : derived[i].actions()) {
+                if (a.isInternal())
+                    continue;
+                Action inverse = a.inverse();
+                if (offeredBy == null) {
+                    for (int j = i + 1; j < n; j++)
+                        synchronise(derived, i, a, j, inverse, sink);
+                } else {
+                    for (int j : offeredBy.getOrDefault(inverse, List.of()))
+                        if (j > i)
+                            synchronise(derived, i, a, j, inverse, sink);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes which operands can perform which visible actions, in ascending order of the operands
+     */
+    private static Map<Action, List<Integer>> offeredBy(TransitionSet[] derived) {
+        Map<Action, List<Integer>> offeredBy = new HashMap<>();
+        for (int i = 0; i < derived.length; i++)
+            for (Action a : derived[i].actions())
+                if (!a.isInternal())
+                    offeredBy.computeIfAbsent(a, k -> new ArrayList<>()).add(i);
+        return offeredBy;
+    }
+
+    private void synchronise(TransitionSet[] derived, int i, Action a, int j, Action inverse, TransitionSink sink) {
+        List<CCSExpression> rs = derived[j].successors(inverse);
+        if (rs.isEmpty())
+            return;
+        for (CCSExpression l : derived[i].successors(a))
+            for (CCSExpression r : rs)
+                sink.accept(Action.tau(), replace(i, l, j, r));
+    }
+
+    /**
+     * The composition where operand i is replaced by s
+     */
+    private Parallel replace(int i, CCSExpression s) {
+        CCSExpression[] ops = operands.clone();
+        ops[i] = s;
+        return Factory.intern(new Parallel(ops));
+    }
+
+    /**
+     * The composition where operand i is replaced by s and operand j by t
+     */
+    private Parallel replace(int i, CCSExpression s, int j, CCSExpression t) {
+        CCSExpression[] ops = operands.clone();
+        ops[i] = s;
+        ops[j] = t;
+        return Factory.intern(new Parallel(ops));
+    }
+
+    /**
+     * All operands, in order
+     */
+    public List<CCSExpression> getOperands() {
+        return List.of(operands);
+    }
+
+    public int getOperandCount() {
+        return operands.length;
+    }
+
+    public CCSExpression getOperand(int i) {
+        return operands[i];
     }
 
     public CCSExpression getLeft() {
-        return left;
+        return operands[0];
     }
 
+    /**
+     * The right operand of this composition viewed as a binary one, i.e. the composition of all operands but the first
+     */
     public CCSExpression getRight() {
-        return right;
+        if (operands.length == 2)
+            return operands[1];
+        return Factory.intern(new Parallel(Arrays.copyOfRange(operands, 1, operands.length)));
     }
 }
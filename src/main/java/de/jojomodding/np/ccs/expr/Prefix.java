@@ -1,8 +1,9 @@
 package de.jojomodding.np.ccs.expr;
 
 import de.jojomodding.np.lts.Action;
-import de.jojomodding.np.util.Pair;
+import de.jojomodding.np.util.Fingerprints;
 
+import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
@@ -13,6 +14,7 @@ public class Prefix extends CCSExpression {
     private final Action prefix;
 
     public Prefix(Action prefix, CCSExpression then) {
+        super(Objects.hash(then, prefix), Fingerprints.combine(Fingerprints.combine(3, prefix.getId()), then.fingerprint()));
         this.then = then;
         this.prefix = prefix;
     }
@@ -20,17 +22,12 @@ public class Prefix extends CCSExpression {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (o == null || getClass() != o.getClass() || hashCode() != o.hashCode()) return false;
         Prefix prefix1 = (Prefix) o;
         return then.equals(prefix1.then) &&
                prefix.equals(prefix1.prefix);
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hash(then, prefix);
-    }
-
     @Override
     protected String deparse(int level) {
         return wrap(level, 0, prefix.toString() + "." + then.deparse(0));
@@ -42,8 +39,15 @@ public class Prefix extends CCSExpression {
     }
 
     @Override
-    public Set<Pair<Action, CCSExpression>> deriveTransitions(Function<String, Set<Pair<Action, CCSExpression>>> env) {
-        return Set.of(new Pair<>(prefix, then));
+    public Set<Action> usedActions() {
+        Set<Action> actions = new HashSet<>(then.usedActions());
+        actions.add(prefix);
+        return actions;
+    }
+
+    @Override
+    public void deriveTransitions(Function<String, TransitionSet> env, TransitionSink sink) {
+        sink.accept(prefix, then);
     }
 
     public Action getPrefix() {
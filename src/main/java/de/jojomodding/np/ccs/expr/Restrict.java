@@ -1,7 +1,8 @@
 package de.jojomodding.np.ccs.expr;
 
+import de.jojomodding.np.Factory;
 import de.jojomodding.np.lts.Action;
-import de.jojomodding.np.util.Pair;
+import de.jojomodding.np.util.Fingerprints;
 
 import java.util.Objects;
 import java.util.Set;
@@ -14,6 +15,7 @@ public class Restrict extends CCSExpression {
     private final FilterSet filter;
 
     public Restrict(CCSExpression expr, FilterSet filter) {
+        super(Objects.hash(expr, filter), Fingerprints.combine(Fingerprints.combine(6, expr.fingerprint()), filter.fingerprint()));
         this.expr = expr;
         this.filter = filter;
     }
@@ -21,17 +23,12 @@ public class Restrict extends CCSExpression {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (o == null || getClass() != o.getClass() || hashCode() != o.hashCode()) return false;
         Restrict restrict = (Restrict) o;
         return expr.equals(restrict.expr) &&
                filter.equals(restrict.filter);
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hash(expr, filter);
-    }
-
     @Override
     protected String deparse(int level) {
         return wrap(level, 1, expr.deparse(0) + " \\ " + filter.toString());
@@ -43,11 +40,16 @@ public class Restrict extends CCSExpression {
     }
 
     @Override
-    public Set<Pair<Action, CCSExpression>> deriveTransitions(Function<String, Set<Pair<Action, CCSExpression>>> env) {
-        return expr.deriveTransitions(env).stream()
-                   .filter(p -> filter.admits(p.first()))
-                   .map(k -> new Pair<Action, CCSExpression>(k.first(), new Restrict(k.second(), filter)))
-                   .collect(Collectors.toSet());
+    public Set<Action> usedActions() {
+        return expr.usedActions().stream().filter(filter::admits).collect(Collectors.toSet());
+    }
+
+    @Override
+    public void deriveTransitions(Function<String, TransitionSet> env, TransitionSink sink) {
+        expr.deriveTransitions(env, (a, s) -> {
+            if (filter.admits(a))
+                sink.accept(a, Factory.restrict(s, filter));
+        });
     }
 
     public CCSExpression getExpression() {
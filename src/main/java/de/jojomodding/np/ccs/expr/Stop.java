@@ -1,7 +1,7 @@
 package de.jojomodding.np.ccs.expr;
 
 import de.jojomodding.np.lts.Action;
-import de.jojomodding.np.util.Pair;
+import de.jojomodding.np.util.Fingerprints;
 
 import java.util.Set;
 import java.util.function.Function;
@@ -9,6 +9,10 @@ import java.util.function.Function;
 public class Stop extends CCSExpression {
     private static final Stop theStop = new Stop();
 
+    private Stop() {
+        super(0, Fingerprints.mix(1));
+    }
+
     public static Stop instance() {
         return theStop;
     }
@@ -18,11 +22,6 @@ public class Stop extends CCSExpression {
         return obj instanceof Stop;
     }
 
-    @Override
-    public int hashCode() {
-        return 0;
-    }
-
     @Override
     protected String deparse(int level) {
         return "0";
@@ -34,9 +33,18 @@ public class Stop extends CCSExpression {
     }
 
     @Override
-    public Set<Pair<Action, CCSExpression>> deriveTransitions(Function<String, Set<Pair<Action, CCSExpression>>> env) {
+    public Set<Action> usedActions() {
         return Set.of();
     }
 
+    @Override
+    public TransitionSet deriveTransitions(Function<String, TransitionSet> env) {
+        return TransitionSet.empty();
+    }
+
+    @Override
+    public void deriveTransitions(Function<String, TransitionSet> env, TransitionSink sink) {
+    }
+
 
 }
@@ -0,0 +1,197 @@
+package de.jojomodding.np.ccs.expr;
+
+import de.jojomodding.np.lts.Action;
+import de.jojomodding.np.util.Pair;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A set of action-successor-pairs, grouped by action.
+ * All successors under a given action can be looked up at once, e.g. to synchronise with the inverse action.
+ */
+public class TransitionSet extends AbstractSet<Pair<Action, CCSExpression>> implements TransitionSink {
+
+    /**
+     * Buckets are found by a linear scan as long as there are at most this many of them
+     */
+    private static final int SCAN_LIMIT = 8;
+
+    private static final TransitionSet EMPTY = new TransitionSet();
+
+    private final List<Bucket> buckets;
+    private Map<Action, Bucket> bucketIndex;
+    private int size;
+
+    public TransitionSet() {
+        this.buckets = new ArrayList<>(2);
+    }
+
+    /**
+     * The empty set of transitions, which can not be modified
+     */
+    public static TransitionSet empty() {
+        return EMPTY;
+    }
+
+    private Bucket bucket(Action a) {
+        if (bucketIndex != null)
+            return bucketIndex.get(a);
+        for (Bucket b : buckets)
+            if (b.action.equals(a))
+                return b;
+        return null;
+    }
+
+    /**
+     * Adds the transition with action a to the successor s
+     * @return whether the transition was new
+     */
+    public boolean add(Action a, CCSExpression s) {
+        if (this == EMPTY)
+            throw new UnsupportedOperationException("The empty transition set can not be modified!");
+        Bucket b = bucket(a);
+        if (b == null) {
+            b = new Bucket(a);
+            buckets.add(b);
+            if (bucketIndex != null) {
+                bucketIndex.put(a, b);
+            } else if (buckets.size() > SCAN_LIMIT) {
+                bucketIndex = new HashMap<>();
+                buckets.forEach(bb -> bucketIndex.put(bb.action, bb));
+            }
+        }
+        if (!b.add(s))
+            return false;
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean add(Pair<Action, CCSExpression> p) {
+        return add(p.first(), p.second());
+    }
+
+    @Override
+    public void accept(Action a, CCSExpression successor) {
+        add(a, successor);
+    }
+
+    /**
+     * Adds all transitions of another set
+     */
+    public void addAll(TransitionSet other) {
+        other.forEach((a, s) -> add(a, s));
+    }
+
+    /**
+     * Passes each transition to the sink, without allocating a pair for it
+     */
+    public void forEach(TransitionSink sink) {
+        for (Bucket b : buckets)
+            for (int i = 0; i < b.count; i++)
+                sink.accept(b.action, b.successors[i]);
+    }
+
+    /**
+     * All actions that have at least one successor
+     */
+    public List<Action> actions() {
+        List<Action> actions = new ArrayList<>(buckets.size());
+        buckets.forEach(b -> actions.add(b.action));
+        return actions;
+    }
+
+    /**
+     * All successors under the action a
+     */
+    public List<CCSExpression> successors(Action a) {
+        Bucket b = bucket(a);
+        if (b == null)
+            return List.of();
+        return Arrays.asList(b.successors).subList(0, b.count);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Pair))
+            return false;
+        Pair<?, ?> p = (Pair<?, ?>) o;
+        if (!(p.first() instanceof Action) || !(p.second() instanceof CCSExpression))
+            return false;
+        Bucket b = bucket((Action) p.first());
+        return b != null && b.contains((CCSExpression) p.second());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Pair<Action, CCSExpression>> iterator() {
+        return new Iterator<>() {
+            private int bucket = 0, index = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (bucket < buckets.size() && index >= buckets.get(bucket).count) {
+                    bucket++;
+                    index = 0;
+                }
+                return bucket < buckets.size();
+            }
+
+            @Override
+            public Pair<Action, CCSExpression> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Bucket b = buckets.get(bucket);
+                return new Pair<>(b.action, b.successors[index++]);
+            }
+        };
+    }
+
+    /**
+     * The successors under a single action
+     */
+    private static final class Bucket {
+        private final Action action;
+        private CCSExpression[] successors;
+        private int count;
+        private Set<CCSExpression> index;
+
+        private Bucket(Action action) {
+            this.action = action;
+            this.successors = new CCSExpression[2];
+        }
+
+        private boolean contains(CCSExpression s) {
+            if (index != null)
+                return index.contains(s);
+            for (int i = 0; i < count; i++)
+                if (successors[i].equals(s))
+                    return true;
+            return false;
+        }
+
+        private boolean add(CCSExpression s) {
+            if (index != null ? !index.add(s) : contains(s))
+                return false;
+            if (count == successors.length)
+                successors = Arrays.copyOf(successors, 2 * count);
+            successors[count++] = s;
+            if (index == null && count > SCAN_LIMIT)
+                index = new HashSet<>(Arrays.asList(successors).subList(0, count));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package de.jojomodding.np.ccs.expr;
+
+import de.jojomodding.np.lts.Action;
+
+/**
+ * Receives derived action-successor-pairs one at a time
+ */
+@FunctionalInterface
+public interface TransitionSink {
+
+    /**
+     * Receives the transition with action a to the successor
+     */
+    void accept(Action a, CCSExpression successor);
+
+}
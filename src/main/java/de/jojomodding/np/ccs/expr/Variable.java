@@ -1,7 +1,7 @@
 package de.jojomodding.np.ccs.expr;
 
 import de.jojomodding.np.lts.Action;
-import de.jojomodding.np.util.Pair;
+import de.jojomodding.np.util.Fingerprints;
 
 import java.util.Objects;
 import java.util.Set;
@@ -12,22 +12,18 @@ public class Variable extends CCSExpression {
     private final String var;
 
     public Variable(String v) {
+        super(Objects.hash(v), Fingerprints.combine(2, Fingerprints.of(v)));
         this.var = v;
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (o == null || getClass() != o.getClass() || hashCode() != o.hashCode()) return false;
         Variable variable = (Variable) o;
         return var.equals(variable.var);
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hash(var);
-    }
-
     @Override
     protected String deparse(int level) {
         return var;
@@ -39,10 +35,20 @@ public class Variable extends CCSExpression {
     }
 
     @Override
-    public Set<Pair<Action, CCSExpression>> deriveTransitions(Function<String, Set<Pair<Action, CCSExpression>>> env) {
+    public Set<Action> usedActions() {
+        return Set.of();
+    }
+
+    @Override
+    public TransitionSet deriveTransitions(Function<String, TransitionSet> env) {
         return env.apply(var);
     }
 
+    @Override
+    public void deriveTransitions(Function<String, TransitionSet> env, TransitionSink sink) {
+        env.apply(var).forEach(sink);
+    }
+
     public String getVar() {
         return var;
     }
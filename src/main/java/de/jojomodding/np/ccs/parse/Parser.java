@@ -3,19 +3,15 @@ package de.jojomodding.np.ccs.parse;
 import de.jojomodding.np.Factory;
 import de.jojomodding.np.ccs.expr.Binding;
 import de.jojomodding.np.ccs.expr.CCSExpression;
-import de.jojomodding.np.ccs.expr.Choice;
 import de.jojomodding.np.ccs.expr.FilterSet;
-import de.jojomodding.np.ccs.expr.Parallel;
-import de.jojomodding.np.ccs.expr.Prefix;
-import de.jojomodding.np.ccs.expr.Restrict;
-import de.jojomodding.np.ccs.expr.Stop;
-import de.jojomodding.np.ccs.expr.Variable;
 import de.jojomodding.np.lts.Action;
 import de.jojomodding.np.lts.Channel;
 import de.jojomodding.np.util.Pair;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class Parser {
@@ -58,7 +54,7 @@ public class Parser {
         Token t = lexer.nextToken();
         if (t.getType() == Token.Type.BACKSLASH) {
             FilterSet f = parseFilter();
-            return new Restrict(k, f);
+            return Factory.restrict(k, f);
         } else {
             lexer.pushBack(t);
             return k;
@@ -101,27 +97,27 @@ public class Parser {
     }
 
     private CCSExpression parseExpression() {
-        CCSExpression lhs = parseChoice();
+        List<CCSExpression> operands = new ArrayList<>();
+        operands.add(parseChoice());
         Token t = lexer.nextToken();
         while (t.getType() == Token.Type.PIPE) {
-            CCSExpression rhs = parsePrefix();
-            lhs = new Parallel(lhs, rhs);
+            operands.add(parsePrefix());
             t = lexer.nextToken();
         }
         lexer.pushBack(t);
-        return lhs;
+        return Factory.parallel(operands);
     }
 
     private CCSExpression parseChoice() {
-        CCSExpression lhs = parseRestrict();
+        List<CCSExpression> operands = new ArrayList<>();
+        operands.add(parseRestrict());
         Token t = lexer.nextToken();
         while (t.getType() == Token.Type.PLUS) {
-            CCSExpression rhs = parsePrefix();
-            lhs = new Choice(lhs, rhs);
+            operands.add(parsePrefix());
             t = lexer.nextToken();
         }
         lexer.pushBack(t);
-        return lhs;
+        return Factory.choice(operands);
     }
 
     private CCSExpression parsePrefix() {
@@ -133,7 +129,7 @@ public class Parser {
         Token t = lexer.nextToken();
         if (t.getType() != Token.Type.DOT)
             throw new IllegalArgumentException("Expected DOT, not " + t.getType() + "!");
-        return new Prefix(a, parsePrefix());
+        return Factory.prefix(a, parsePrefix());
     }
 
     private Action parseAction() {
@@ -161,9 +157,9 @@ public class Parser {
         Token k = lexer.nextToken();
         switch (k.getType()) {
             case IDENT:
-                return new Variable(k.getText());
+                return Factory.var(k.getText());
             case STOP:
-                return new Stop();
+                return Factory.stop();
             case LPAREN:
                 CCSExpression c = parseExpression();
                 k = lexer.nextToken();
@@ -3,11 +3,11 @@ package de.jojomodding.np.lts;
 import de.jojomodding.np.Factory;
 import de.jojomodding.np.ccs.expr.CCSExpression;
 
-import java.util.Objects;
 import java.util.Optional;
 
 /**
- * Represents an action in the LTS
+ * Represents an action in the LTS.
+ * Actions are interned: there is exactly one τ, and exactly one sending and one receiving action per channel.
  */
 public abstract class Action {
 
@@ -16,11 +16,11 @@ public abstract class Action {
     }
 
     public static Action.SendingAction sending(Channel c) {
-        return new Action.SendingAction(c);
+        return c.sending();
     }
 
     public static Action.ReceivingAction receiving(Channel c) {
-        return new Action.ReceivingAction(c);
+        return c.receiving();
     }
 
     public boolean isInternal() {
@@ -39,6 +39,18 @@ public abstract class Action {
         return Optional.empty();
     }
 
+    /**
+     * The id of the channel of this action, or -1 if it has no channel
+     */
+    public int getChannelId() {
+        return -1;
+    }
+
+    /**
+     * The id of this action. Ids are dense: τ has id 0, and the actions on channel c have ids 2c+1 and 2c+2
+     */
+    public abstract int getId();
+
     public boolean isInverseOf(Action a) {
         return false;
     }
@@ -86,6 +98,11 @@ public abstract class Action {
             return "τ";
         }
 
+        @Override
+        public int getId() {
+            return 0;
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof InternalAction;
@@ -106,7 +123,7 @@ public abstract class Action {
 
         private final Channel chan;
 
-        private SendingAction(Channel chan) {
+        SendingAction(Channel chan) {
             this.chan = chan;
         }
 
@@ -120,17 +137,24 @@ public abstract class Action {
             return Optional.of(chan);
         }
 
+        @Override
+        public int getChannelId() {
+            return chan.id();
+        }
+
+        @Override
+        public int getId() {
+            return 2 * chan.id() + 1;
+        }
+
         @Override
         public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            SendingAction that = (SendingAction) o;
-            return chan.equals(that.chan);
+            return this == o;
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(chan, 1337);
+            return getId();
         }
 
         @Override
@@ -140,14 +164,12 @@ public abstract class Action {
 
         @Override
         public boolean isInverseOf(Action a) {
-            if (!(a instanceof ReceivingAction))
-                return false;
-            return ((ReceivingAction) a).chan.equals(chan);
+            return a == inverse();
         }
 
         @Override
         public Action inverse() {
-            return new ReceivingAction(chan);
+            return chan.receiving();
         }
     }
 
@@ -155,7 +177,7 @@ public abstract class Action {
 
         private final Channel chan;
 
-        private ReceivingAction(Channel chan) {
+        ReceivingAction(Channel chan) {
             this.chan = chan;
         }
 
@@ -169,17 +191,24 @@ public abstract class Action {
             return Optional.of(chan);
         }
 
+        @Override
+        public int getChannelId() {
+            return chan.id();
+        }
+
+        @Override
+        public int getId() {
+            return 2 * chan.id() + 2;
+        }
+
         @Override
         public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            ReceivingAction that = (ReceivingAction) o;
-            return chan.equals(that.chan);
+            return this == o;
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(chan, 420);
+            return getId();
         }
 
         @Override
@@ -189,14 +218,12 @@ public abstract class Action {
 
         @Override
         public boolean isInverseOf(Action a) {
-            if (!(a instanceof SendingAction))
-                return false;
-            return ((SendingAction) a).chan.equals(chan);
+            return a == inverse();
         }
 
         @Override
         public Action inverse() {
-            return new SendingAction(chan);
+            return chan.sending();
         }
     }
 }
@@ -0,0 +1,121 @@
+package de.jojomodding.np.lts;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads LTSs in the Aldebaran format of CADP and mCRL2, i.e. a header {@code des (start, transitions, states)} followed
+ * by one line {@code (source, "label", target)} per transition. The input is read line by line straight into a
+ * {@link CompactLTS.Builder}.
+ * <p>
+ * The labels {@code tau}, {@code i} and {@code τ} are read as τ, a label {@code c!} as sending on c, and any other label
+ * {@code c?} or {@code c} as receiving on c.
+ */
+public class AutReader {
+
+    private final BufferedReader reader;
+    private final Map<String, Action> actions = new HashMap<>();
+    private int line;
+
+    public AutReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * Reads an UTF-8 encoded file
+     */
+    public static CompactLTS read(Path path) throws IOException {
+        try (Reader r = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return new AutReader(r).read();
+        }
+    }
+
+    /**
+     * Reads the LTS, up to the end of the input
+     * @throws IOException if the input is malformed
+     */
+    public CompactLTS read() throws IOException {
+        String header = nextLine();
+        if (header == null || !header.startsWith("des"))
+            throw error("Expected the header \"des (start, transitions, states)\"!");
+        String[] fields = tuple(header.substring(3).trim());
+        int start = number(fields[0]), transitions = number(fields[1]), states = number(fields[2]);
+        CompactLTS.Builder b = CompactLTS.builder().ensureStates(states).setStart(start);
+        int read = 0;
+        for (String l = nextLine(); l != null; l = nextLine()) {
+            String[] t = tuple(l);
+            try {
+                b.addTransition(number(t[0]), action(t[1]), number(t[2]));
+            } catch (IllegalArgumentException e) {
+                throw error(e.getMessage());
+            }
+            read++;
+        }
+        if (read != transitions)
+            throw error("The header announces " + transitions + " transitions, but there are " + read + "!");
+        try {
+            return b.build();
+        } catch (IllegalArgumentException e) {
+            throw error(e.getMessage());
+        }
+    }
+
+    /**
+     * The next line that is not blank, trimmed, or null at the end of the input
+     */
+    private String nextLine() throws IOException {
+        String l;
+        do {
+            l = reader.readLine();
+            line++;
+        } while (l != null && l.trim().isEmpty());
+        return l == null ? null : l.trim();
+    }
+
+    /**
+     * Splits "(a, b, c)" into its fields. The label in the middle may contain commas
+     */
+    private String[] tuple(String s) throws IOException {
+        int first = s.indexOf(','), last = s.lastIndexOf(',');
+        if (!s.startsWith("(") || !s.endsWith(")") || first == last)
+            throw error("Expected a triple, not " + s + "!");
+        return new String[]{
+                s.substring(1, first).trim(),
+                s.substring(first + 1, last).trim(),
+                s.substring(last + 1, s.length() - 1).trim()};
+    }
+
+    private int number(String s) throws IOException {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            throw error("Expected a number, not " + s + "!");
+        }
+    }
+
+    private Action action(String label) {
+        if (label.length() >= 2 && label.startsWith("\"") && label.endsWith("\""))
+            label = label.substring(1, label.length() - 1);
+        return actions.computeIfAbsent(label, AutReader::parseAction);
+    }
+
+    private static Action parseAction(String label) {
+        if (label.equals("tau") || label.equals("i") || label.equals("τ"))
+            return Action.tau();
+        if (label.endsWith("!"))
+            return Action.sending(Channel.of(label.substring(0, label.length() - 1)));
+        if (label.endsWith("?"))
+            return Action.receiving(Channel.of(label.substring(0, label.length() - 1)));
+        return Action.receiving(Channel.of(label));
+    }
+
+    private IOException error(String message) {
+        return new IOException("Line " + line + ": " + message);
+    }
+}
@@ -0,0 +1,87 @@
+package de.jojomodding.np.lts;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes LTSs in the Aldebaran format, which {@link AutReader} reads. States are written as their indices, and τ as
+ * {@code tau}. Transitions are written one by one as they are visited, without collecting them first.
+ */
+public class AutWriter {
+
+    private final Writer writer;
+
+    public AutWriter(Writer writer) {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+    }
+
+    /**
+     * Writes an LTS to an UTF-8 encoded file
+     */
+    public static void write(CompactLTS lts, Path path) throws IOException {
+        try (Writer w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            new AutWriter(w).write(lts);
+        }
+    }
+
+    /**
+     * Writes an LTS to an UTF-8 encoded file, numbering the states in the order of {@link LTS#getStates()}
+     */
+    public static <T> void write(LTS<T> lts, Path path) throws IOException {
+        try (Writer w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            new AutWriter(w).write(lts);
+        }
+    }
+
+    /**
+     * Writes an LTS and flushes the underlying writer
+     */
+    public void write(CompactLTS lts) throws IOException {
+        header(lts.getStart(), lts.getTransitionCount(), lts.getStateCount());
+        for (int s = 0; s < lts.getStateCount(); s++)
+            for (int i = lts.outStart(s); i < lts.outEnd(s); i++)
+                transition(s, lts.getAction(lts.outAction(i)), lts.outTarget(i));
+        writer.flush();
+    }
+
+    /**
+     * Writes an LTS, numbering the states in the order of {@link LTS#getStates()}, and flushes the underlying writer
+     * @throws IllegalArgumentException if the start or a transition uses a state that is not in that list
+     */
+    public <T> void write(LTS<T> lts) throws IOException {
+        Map<T, Integer> ids = new HashMap<>();
+        for (T state : lts.getStates())
+            ids.putIfAbsent(state, ids.size());
+        header(id(ids, lts.getStart()), lts.getTransitions().size(), ids.size());
+        for (LTS.Transitions<T> t : lts.getTransitions())
+            transition(id(ids, t.getSource()), t.getAction(), id(ids, t.getTarget()));
+        writer.flush();
+    }
+
+    private static <T> int id(Map<T, Integer> ids, T state) {
+        Integer id = ids.get(state);
+        if (id == null)
+            throw new IllegalArgumentException("The state " + state + " is not a state of the LTS!");
+        return id;
+    }
+
+    private void header(int start, int transitions, int states) throws IOException {
+        writer.write("des (" + start + ", " + transitions + ", " + states + ")\n");
+    }
+
+    private void transition(int source, Action a, int target) throws IOException {
+        writer.write('(');
+        writer.write(Integer.toString(source));
+        writer.write(",\"");
+        writer.write(a.isInternal() ? "tau" : a.toString());
+        writer.write("\",");
+        writer.write(Integer.toString(target));
+        writer.write(")\n");
+    }
+}
@@ -1,22 +1,56 @@
 package de.jojomodding.np.lts;
 
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A channel. At the moment, basically a string.
+ * Channels are interned: there is exactly one channel per name, and each channel has a dense integer id.
  */
 public final class Channel {
 
+    private static final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextId = new AtomicInteger();
+
     private final String name;
+    private final int id;
+    private final Action.SendingAction sending;
+    private final Action.ReceivingAction receiving;
 
-    public Channel(String name) {
+    private Channel(String name, int id) {
         this.name = name;
+        this.id = id;
+        this.sending = new Action.SendingAction(this);
+        this.receiving = new Action.ReceivingAction(this);
+    }
+
+    /**
+     * Finds the channel with the given name
+     */
+    public static Channel of(String name) {
+        return channels.computeIfAbsent(name, n -> new Channel(n, nextId.getAndIncrement()));
     }
 
     public String name() {
         return name;
     }
 
+    /**
+     * The id of this channel. Ids are dense, i.e. they are assigned counting up from 0 as channels are created
+     */
+    public int id() {
+        return id;
+    }
+
+    Action.SendingAction sending() {
+        return sending;
+    }
+
+    Action.ReceivingAction receiving() {
+        return receiving;
+    }
+
     @Override
     public String toString() {
         return name;
@@ -24,15 +58,12 @@ public final class Channel {
 
     @Override
     public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Channel channel = (Channel) o;
-        return name.equals(channel.name);
+        return this == o;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name);
+        return id;
     }
 
 }
@@ -0,0 +1,335 @@
+package de.jojomodding.np.lts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * A finite LTS over the states 0 to n-1 and dense action ids, stored in compressed sparse rows.
+ * The transitions are sorted by their source, so the outgoing transitions of a state are the index range
+ * {@code [outStart(s), outEnd(s))}, and likewise for the incoming transitions. Transitions are unique.
+ * <p>
+ * Instances are immutable and are constructed by a {@link Builder} or from an {@link LTS}.
+ */
+public final class CompactLTS {
+
+    private final int stateCount;
+    private final int start;
+    private final Action[] actions;
+    private final Map<Action, Integer> actionIds;
+    private final int[] outOffsets, outActions, outTargets;
+    private final int[] inOffsets, inActions, inSources;
+
+    private CompactLTS(int stateCount, int start, Action[] actions, Map<Action, Integer> actionIds,
+                       int[] outOffsets, int[] outActions, int[] outTargets) {
+        this.stateCount = stateCount;
+        this.start = start;
+        this.actions = actions;
+        this.actionIds = actionIds;
+        this.outOffsets = outOffsets;
+        this.outActions = outActions;
+        this.outTargets = outTargets;
+        //the incoming transitions are a counting sort of the outgoing ones by target
+        int m = outTargets.length;
+        this.inOffsets = new int[stateCount + 1];
+        for (int t : outTargets)
+            inOffsets[t + 1]++;
+        for (int s = 0; s < stateCount; s++)
+            inOffsets[s + 1] += inOffsets[s];
+        this.inActions = new int[m];
+        this.inSources = new int[m];
+        int[] next = Arrays.copyOf(inOffsets, stateCount);
+        for (int s = 0; s < stateCount; s++) {
+            for (int i = outOffsets[s]; i < outOffsets[s + 1]; i++) {
+                int j = next[outTargets[i]]++;
+                inActions[j] = outActions[i];
+                inSources[j] = s;
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Converts an LTS, numbering its states as {@link #statesOf(LTS)} lists them
+     * @throws IllegalArgumentException if a transition uses a state that is not in {@link LTS#getStates()}
+     */
+    public static <T> CompactLTS of(LTS<T> lts) {
+        Builder b = builder();
+        Map<T, Integer> ids = new HashMap<>();
+        for (T state : statesOf(lts))
+            ids.put(state, b.addState());
+        for (LTS.Transitions<T> t : lts.getTransitions())
+            b.addTransition(id(ids, t.getSource()), t.getAction(), id(ids, t.getTarget()));
+        return b.setStart(ids.get(lts.getStart())).build();
+    }
+
+    /**
+     * The states of an LTS by their id in {@link #of(LTS)}: the distinct states in the order of {@link LTS#getStates()},
+     * followed by the start state if it is missing there, as for an LTS constructed from transitions only
+     */
+    public static <T> List<T> statesOf(LTS<T> lts) {
+        Set<T> seen = new HashSet<>();
+        List<T> states = new ArrayList<>(lts.getStates().size() + 1);
+        for (T state : lts.getStates())
+            if (seen.add(state))
+                states.add(state);
+        if (seen.add(lts.getStart()))
+            states.add(lts.getStart());
+        return states;
+    }
+
+    /**
+     * The disjoint union of this and another LTS. The states of this keep their ids, the states of other are shifted
+     * by {@link #getStateCount()}, and the start is the start of this
+     */
+    public CompactLTS disjointUnion(CompactLTS other) {
+        Builder b = builder().ensureStates(stateCount + other.stateCount).setStart(start);
+        for (int s = 0; s < stateCount; s++)
+            for (int i = outStart(s); i < outEnd(s); i++)
+                b.addTransition(s, actions[outActions[i]], outTargets[i]);
+        for (int s = 0; s < other.stateCount; s++)
+            for (int i = other.outStart(s); i < other.outEnd(s); i++)
+                b.addTransition(stateCount + s, other.actions[other.outActions[i]], stateCount + other.outTargets[i]);
+        return b.build();
+    }
+
+    private static <T> int id(Map<T, Integer> ids, T state) {
+        Integer id = ids.get(state);
+        if (id == null)
+            throw new IllegalArgumentException("The state " + state + " is not a state of the LTS!");
+        return id;
+    }
+
+    /**
+     * Converts this to a generic LTS over the state ids
+     */
+    public LTS<Integer> toLTS() {
+        return toLTS(Integer::valueOf);
+    }
+
+    /**
+     * Converts this to a generic LTS
+     * @param states gives the state for each state id
+     */
+    public <T> LTS<T> toLTS(IntFunction<T> states) {
+        List<T> ss = IntStream.range(0, stateCount).mapToObj(states).collect(Collectors.toList());
+        Set<LTS.Transitions<T>> transitions = new HashSet<>();
+        for (int s = 0; s < stateCount; s++)
+            for (int i = outOffsets[s]; i < outOffsets[s + 1]; i++)
+                transitions.add(new LTS.Transitions<>(ss.get(s), actions[outActions[i]], ss.get(outTargets[i])));
+        return new LTS<>(ss, transitions, ss.get(start));
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getTransitionCount() {
+        return outTargets.length;
+    }
+
+    /**
+     * The number of distinct actions
+     */
+    public int getActionCount() {
+        return actions.length;
+    }
+
+    public Action getAction(int actionId) {
+        return actions[actionId];
+    }
+
+    /**
+     * The id of an action, or -1 if no transition uses it
+     */
+    public int getActionId(Action a) {
+        return actionIds.getOrDefault(a, -1);
+    }
+
+    /**
+     * The first index of the outgoing transitions of state s
+     */
+    public int outStart(int s) {
+        return outOffsets[s];
+    }
+
+    /**
+     * The index after the last outgoing transition of state s
+     */
+    public int outEnd(int s) {
+        return outOffsets[s + 1];
+    }
+
+    /**
+     * The action id of the outgoing transition with index i
+     */
+    public int outAction(int i) {
+        return outActions[i];
+    }
+
+    /**
+     * The target of the outgoing transition with index i
+     */
+    public int outTarget(int i) {
+        return outTargets[i];
+    }
+
+    /**
+     * The first index of the incoming transitions of state s
+     */
+    public int inStart(int s) {
+        return inOffsets[s];
+    }
+
+    /**
+     * The index after the last incoming transition of state s
+     */
+    public int inEnd(int s) {
+        return inOffsets[s + 1];
+    }
+
+    /**
+     * The action id of the incoming transition with index i
+     */
+    public int inAction(int i) {
+        return inActions[i];
+    }
+
+    /**
+     * The source of the incoming transition with index i
+     */
+    public int inSource(int i) {
+        return inSources[i];
+    }
+
+    /**
+     * Performs a random walk, choosing uniformly among the outgoing transitions in each step
+     *
+     * @param canTerminateEarly whether we can terminate before reaching a terminal state
+     * @param random the source of randomness
+     * @return the walk over the state ids
+     */
+    public Walk<Integer> randomWalk(boolean canTerminateEarly, Random random) {
+        int s = start;
+        Walk<Integer> walk = new Walk<>(s);
+        while (true) {
+            int degree = outEnd(s) - outStart(s);
+            if (degree == 0)
+                return walk;
+            int i = random.nextInt(degree + (canTerminateEarly ? 1 : 0));
+            if (i == degree)
+                return walk;
+            i += outStart(s);
+            walk.addStep(actions[outActions[i]], outTargets[i]);
+            s = outTargets[i];
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompactLTS(" + stateCount + " states, " + getTransitionCount() + " transitions, " + actions.length + " actions, start " + start + ")";
+    }
+
+    /**
+     * Collects states and transitions for a {@link CompactLTS}. Duplicate transitions are dropped on {@link #build()}
+     */
+    public static final class Builder {
+        private int stateCount;
+        private int start;
+        private final List<Action> actions = new ArrayList<>();
+        private final Map<Action, Integer> actionIds = new HashMap<>();
+        private int[] sources = new int[16], actionsOf = new int[16], targets = new int[16];
+        private int transitionCount;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a new state
+         * @return its id
+         */
+        public int addState() {
+            return stateCount++;
+        }
+
+        /**
+         * Adds states until there are at least n
+         */
+        public Builder ensureStates(int n) {
+            stateCount = Math.max(stateCount, n);
+            return this;
+        }
+
+        public Builder setStart(int start) {
+            this.start = start;
+            return this;
+        }
+
+        public Builder addTransition(int source, Action a, int target) {
+            if (source < 0 || source >= stateCount || target < 0 || target >= stateCount)
+                throw new IllegalArgumentException("The transition " + source + " -" + a + "-> " + target + " uses an unknown state!");
+            if (transitionCount == sources.length) {
+                sources = Arrays.copyOf(sources, 2 * transitionCount);
+                actionsOf = Arrays.copyOf(actionsOf, 2 * transitionCount);
+                targets = Arrays.copyOf(targets, 2 * transitionCount);
+            }
+            Integer id = actionIds.get(a);
+            if (id == null) {
+                id = actions.size();
+                actions.add(a);
+                actionIds.put(a, id);
+            }
+            sources[transitionCount] = source;
+            actionsOf[transitionCount] = id;
+            targets[transitionCount] = target;
+            transitionCount++;
+            return this;
+        }
+
+        public CompactLTS build() {
+            if (start < 0 || start >= stateCount)
+                throw new IllegalArgumentException("The start state " + start + " is unknown!");
+            //sort by source, then sort and deduplicate each row by action and target
+            int[] offsets = new int[stateCount + 1];
+            for (int i = 0; i < transitionCount; i++)
+                offsets[sources[i] + 1]++;
+            for (int s = 0; s < stateCount; s++)
+                offsets[s + 1] += offsets[s];
+            long[] rows = new long[transitionCount];
+            int[] next = Arrays.copyOf(offsets, stateCount);
+            for (int i = 0; i < transitionCount; i++)
+                rows[next[sources[i]]++] = ((long) actionsOf[i] << 32) | targets[i];
+            int[] outOffsets = new int[stateCount + 1];
+            int[] outActions = new int[transitionCount], outTargets = new int[transitionCount];
+            int m = 0;
+            for (int s = 0; s < stateCount; s++) {
+                Arrays.sort(rows, offsets[s], offsets[s + 1]);
+                for (int i = offsets[s]; i < offsets[s + 1]; i++) {
+                    if (i > offsets[s] && rows[i] == rows[i - 1])
+                        continue;
+                    outActions[m] = (int) (rows[i] >>> 32);
+                    outTargets[m] = (int) rows[i];
+                    m++;
+                }
+                outOffsets[s + 1] = m;
+            }
+            return new CompactLTS(stateCount, start, actions.toArray(new Action[0]), Map.copyOf(actionIds),
+                                  outOffsets, Arrays.copyOf(outActions, m), Arrays.copyOf(outTargets, m));
+        }
+    }
+}
@@ -82,11 +82,13 @@ public class LTS<T> {
      */
     public Pair<Binding, CCSExpression> toCCS() {
         LTS<Integer> k = rename();
+        //group the transitions once, instead of filtering all of them for each state
+        Map<Integer, List<Transitions<Integer>>> outgoing = k.transitions.stream().collect(Collectors.groupingBy(Transitions::getSource));
         Binding b = new Binding(k.getStates().stream()
                                  .map(i -> new Pair<>("X" + i,
-                                                      k.transitions.stream().filter(t -> t.getSource().equals(i))
-                                                                   .map(t -> t.getAction().then("X" + t.getTarget()))
-                                                                   .collect(Factory.toChoice()))).collect(Collectors.toUnmodifiableList()));
+                                                      outgoing.getOrDefault(i, List.of()).stream()
+                                                              .map(t -> t.getAction().then("X" + t.getTarget()))
+                                                              .collect(Factory.toChoice()))).collect(Collectors.toUnmodifiableList()));
         return new Pair<>(b, var("X" + k.getStart()));
     }
 
@@ -105,22 +107,13 @@ public class LTS<T> {
      * @return the walk
      */
     public Walk<T> randomWalk(boolean canTerminateEarly) {
-        T t = start;
-        Walk<T> walk = new Walk<>(t);
-        Random r = new Random();
-        while (true) {
-            final T tl = t;
-            List<Pair<Action, T>> choices = transitions.stream().filter(tt -> tt.getSource().equals(tl)).map(p -> new Pair<>(p.getAction(), p.getTarget())).collect(Collectors.toList());
-            if (choices.isEmpty()) {
-                return walk;
-            }
-            int i = r.nextInt(choices.size() + (canTerminateEarly ? 1 : 0));
-            if (i == choices.size())
-                return walk;
-            Pair<Action, T> next = choices.get(i);
-            walk.addStep(next.first(), next.second());
-            t = next.second();
-        }
+        //index the transitions once, so that each step only looks at the outgoing transitions
+        Walk<Integer> ids = CompactLTS.of(this).randomWalk(canTerminateEarly, new Random());
+        List<T> states = CompactLTS.statesOf(this);
+        Walk<T> walk = new Walk<>(states.get(ids.getStates().get(0)));
+        for (int i = 0; i < ids.length(); i++)
+            walk.addStep(ids.getActions().get(i), states.get(ids.getStates().get(i + 1)));
+        return walk;
     }
 
     public static class Transitions<T> {
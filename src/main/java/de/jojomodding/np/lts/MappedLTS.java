@@ -0,0 +1,390 @@
+package de.jojomodding.np.lts;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * An LTS in a binary file, which is memory-mapped instead of read. Queries go straight to the mapping, so opening a
+ * file takes about constant time, and only the pages that are used are ever loaded.
+ * <p>
+ * The file is little-endian and consists of
+ * <ol>
+ *     <li>the magic number {@code NPLT}, the version, the numbers of states, transitions and actions, the start state,
+ *     the flags (1 if there are state labels) and the size of the action table, as ints,</li>
+ *     <li>the action table: per action its kind (0 for τ, 1 for sending, 2 for receiving) as a byte, followed by the
+ *     length and UTF-8 bytes of the channel name, padded to 4 bytes,</li>
+ *     <li>the transitions in the layout of {@link CompactLTS}: the outgoing offsets, actions and targets, then the
+ *     incoming offsets, actions and sources,</li>
+ *     <li>if there are labels, padding to 8 bytes, the offsets of the labels as longs, and the UTF-8 bytes of all labels.</li>
+ * </ol>
+ * Each section must be smaller than 2 GiB.
+ */
+public final class MappedLTS {
+
+    private static final int MAGIC = 0x544c504e;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int HAS_LABELS = 1;
+
+    private final int stateCount, transitionCount, start;
+    private final Action[] actions;
+    private final Map<Action, Integer> actionIds;
+    private final IntBuffer outOffsets, outActions, outTargets;
+    private final IntBuffer inOffsets, inActions, inSources;
+    private final LongBuffer labelOffsets;
+    private final ByteBuffer labels;
+
+    private MappedLTS(FileChannel file) throws IOException {
+        ByteBuffer header = map(file, 0, HEADER_BYTES);
+        if (header.getInt(0) != MAGIC)
+            throw new IOException("Not an LTS file!");
+        if (header.getInt(4) != VERSION)
+            throw new IOException("Unsupported LTS file version " + header.getInt(4) + "!");
+        this.stateCount = header.getInt(8);
+        this.transitionCount = header.getInt(12);
+        int actionCount = header.getInt(16);
+        this.start = header.getInt(20);
+        int flags = header.getInt(24);
+        int actionBytes = header.getInt(28);
+        if (stateCount < 0 || transitionCount < 0 || actionCount < 0 || actionBytes < 0)
+            throw new IOException("The header of the LTS file is corrupt!");
+        if (start < 0 || start >= stateCount)
+            throw new IOException("The start state " + start + " is not one of the " + stateCount + " states!");
+
+        ByteBuffer table = map(file, HEADER_BYTES, actionBytes);
+        this.actions = new Action[actionCount];
+        this.actionIds = new HashMap<>();
+        for (int a = 0; a < actionCount; a++) {
+            byte kind = table.get();
+            byte[] name = new byte[table.getInt()];
+            table.get(name);
+            actions[a] = action(kind, new String(name, StandardCharsets.UTF_8));
+            actionIds.put(actions[a], a);
+        }
+
+        long position = HEADER_BYTES + actionBytes;
+        long rowBytes = 4L * (stateCount + 1), columnBytes = 4L * transitionCount;
+        this.outOffsets = map(file, position, rowBytes).asIntBuffer();
+        this.outActions = map(file, position += rowBytes, columnBytes).asIntBuffer();
+        this.outTargets = map(file, position += columnBytes, columnBytes).asIntBuffer();
+        this.inOffsets = map(file, position += columnBytes, rowBytes).asIntBuffer();
+        this.inActions = map(file, position += rowBytes, columnBytes).asIntBuffer();
+        this.inSources = map(file, position += columnBytes, columnBytes).asIntBuffer();
+        position += columnBytes;
+        //the rows are not checked one by one, which would take linear time, but at least the ends must match
+        checkOffsets(outOffsets, "outgoing");
+        checkOffsets(inOffsets, "incoming");
+        if ((flags & HAS_LABELS) != 0) {
+            position = align(position, 8);
+            this.labelOffsets = map(file, position, 8L * (stateCount + 1)).asLongBuffer();
+            this.labels = map(file, position + 8L * (stateCount + 1), labelOffsets.get(stateCount));
+        } else {
+            this.labelOffsets = null;
+            this.labels = null;
+        }
+    }
+
+    /**
+     * Maps an LTS file. The file can be closed and deleted afterwards, but must not be modified
+     */
+    public static MappedLTS open(Path path) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedLTS(file);
+        }
+    }
+
+    private static ByteBuffer map(FileChannel file, long position, long size) throws IOException {
+        if (size < 0 || size > Integer.MAX_VALUE)
+            throw new IOException("A section of " + size + " bytes can not be mapped!");
+        if (position + size > file.size())
+            throw new IOException("The LTS file is truncated!");
+        return file.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void checkOffsets(IntBuffer offsets, String kind) throws IOException {
+        if (offsets.get(0) != 0 || offsets.get(stateCount) != transitionCount)
+            throw new IOException("The offsets of the " + kind + " transitions are corrupt!");
+    }
+
+    private static long align(long position, int alignment) {
+        return (position + alignment - 1) / alignment * alignment;
+    }
+
+    private static Action action(byte kind, String channel) throws IOException {
+        switch (kind) {
+            case 0:
+                return Action.tau();
+            case 1:
+                return Action.sending(Channel.of(channel));
+            case 2:
+                return Action.receiving(Channel.of(channel));
+            default:
+                throw new IOException("Unknown action kind " + kind + "!");
+        }
+    }
+
+    /**
+     * Writes an LTS, labelling each state by its toString(). Distinct states may get the same label, but keep their
+     * own ids
+     */
+    public static <T> void write(LTS<T> lts, Path path) throws IOException {
+        List<T> states = CompactLTS.statesOf(lts);
+        write(CompactLTS.of(lts), s -> states.get(s).toString(), path);
+    }
+
+    /**
+     * Writes a compact LTS without state labels
+     */
+    public static void write(CompactLTS lts, Path path) throws IOException {
+        write(lts, null, path);
+    }
+
+    /**
+     * Writes a compact LTS
+     * @param labels the label of each state, or null to write no labels
+     */
+    public static void write(CompactLTS lts, IntFunction<String> labels, Path path) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Output out = new Output(file)) {
+            byte[][] names = new byte[lts.getActionCount()][];
+            int actionBytes = 0;
+            for (int a = 0; a < names.length; a++) {
+                names[a] = lts.getAction(a).getChannel().map(c -> c.name().getBytes(StandardCharsets.UTF_8)).orElse(new byte[0]);
+                actionBytes += 5 + names[a].length;
+            }
+            actionBytes = (int) align(actionBytes, 4);
+            int n = lts.getStateCount();
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(n);
+            out.putInt(lts.getTransitionCount());
+            out.putInt(names.length);
+            out.putInt(lts.getStart());
+            out.putInt(labels == null ? 0 : HAS_LABELS);
+            out.putInt(actionBytes);
+            for (int a = 0; a < names.length; a++) {
+                Action action = lts.getAction(a);
+                out.put((byte) (action.isInternal() ? 0 : action.isSending() ? 1 : 2));
+                out.putInt(names[a].length);
+                out.put(names[a]);
+            }
+            out.pad(4);
+
+            for (int s = 0; s <= n; s++)
+                out.putInt(s < n ? lts.outStart(s) : lts.getTransitionCount());
+            for (int i = 0; i < lts.getTransitionCount(); i++)
+                out.putInt(lts.outAction(i));
+            for (int i = 0; i < lts.getTransitionCount(); i++)
+                out.putInt(lts.outTarget(i));
+            for (int s = 0; s <= n; s++)
+                out.putInt(s < n ? lts.inStart(s) : lts.getTransitionCount());
+            for (int i = 0; i < lts.getTransitionCount(); i++)
+                out.putInt(lts.inAction(i));
+            for (int i = 0; i < lts.getTransitionCount(); i++)
+                out.putInt(lts.inSource(i));
+            if (labels == null)
+                return;
+
+            //the offsets come first, so the labels are encoded twice instead of being kept in memory
+            out.pad(8);
+            long offset = 0;
+            out.putLong(offset);
+            for (int s = 0; s < n; s++) {
+                offset += labels.apply(s).getBytes(StandardCharsets.UTF_8).length;
+                out.putLong(offset);
+            }
+            for (int s = 0; s < n; s++)
+                out.put(labels.apply(s).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Copies this into the heap
+     */
+    public CompactLTS toCompact() {
+        CompactLTS.Builder b = CompactLTS.builder().ensureStates(stateCount).setStart(start);
+        for (int s = 0; s < stateCount; s++)
+            for (int i = outStart(s); i < outEnd(s); i++)
+                b.addTransition(s, actions[outAction(i)], outTarget(i));
+        return b.build();
+    }
+
+    /**
+     * Copies this into the heap as a generic LTS over the state ids. The labels need not be unique, so they are not
+     * used as states, but can be looked up by {@link #getLabel(int)}
+     */
+    public LTS<Integer> toLTS() {
+        return toCompact().toLTS();
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getTransitionCount() {
+        return transitionCount;
+    }
+
+    public int getActionCount() {
+        return actions.length;
+    }
+
+    public Action getAction(int actionId) {
+        return actions[actionId];
+    }
+
+    /**
+     * The id of an action, or -1 if no transition uses it
+     */
+    public int getActionId(Action a) {
+        return actionIds.getOrDefault(a, -1);
+    }
+
+    public boolean hasLabels() {
+        return labels != null;
+    }
+
+    /**
+     * Decodes the label of state s
+     * @throws IllegalStateException if the file has no labels
+     */
+    public String getLabel(int s) {
+        if (labels == null)
+            throw new IllegalStateException("The LTS has no state labels!");
+        int from = (int) labelOffsets.get(s), to = (int) labelOffsets.get(s + 1);
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = labels.get(from + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The first index of the outgoing transitions of state s
+     */
+    public int outStart(int s) {
+        return outOffsets.get(s);
+    }
+
+    /**
+     * The index after the last outgoing transition of state s
+     */
+    public int outEnd(int s) {
+        return outOffsets.get(s + 1);
+    }
+
+    public int outAction(int i) {
+        return outActions.get(i);
+    }
+
+    public int outTarget(int i) {
+        return outTargets.get(i);
+    }
+
+    /**
+     * The first index of the incoming transitions of state s
+     */
+    public int inStart(int s) {
+        return inOffsets.get(s);
+    }
+
+    /**
+     * The index after the last incoming transition of state s
+     */
+    public int inEnd(int s) {
+        return inOffsets.get(s + 1);
+    }
+
+    public int inAction(int i) {
+        return inActions.get(i);
+    }
+
+    public int inSource(int i) {
+        return inSources.get(i);
+    }
+
+    @Override
+    public String toString() {
+        return "MappedLTS(" + stateCount + " states, " + transitionCount + " transitions, " + actions.length + " actions, start " + start + ")";
+    }
+
+    /**
+     * Buffers the output to a channel
+     */
+    private static final class Output implements AutoCloseable {
+        private final FileChannel file;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        Output(FileChannel file) {
+            this.file = file;
+        }
+
+        void putInt(int v) throws IOException {
+            ensure(4);
+            buffer.putInt(v);
+            position += 4;
+        }
+
+        void putLong(long v) throws IOException {
+            ensure(8);
+            buffer.putLong(v);
+            position += 8;
+        }
+
+        void put(byte v) throws IOException {
+            ensure(1);
+            buffer.put(v);
+            position++;
+        }
+
+        void put(byte[] bytes) throws IOException {
+            for (int i = 0; i < bytes.length; ) {
+                ensure(1);
+                int length = Math.min(bytes.length - i, buffer.remaining());
+                buffer.put(bytes, i, length);
+                i += length;
+                position += length;
+            }
+        }
+
+        /**
+         * Writes zeros until the position is a multiple of alignment
+         */
+        void pad(int alignment) throws IOException {
+            while (position % alignment != 0)
+                put((byte) 0);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes)
+                flush();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                file.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
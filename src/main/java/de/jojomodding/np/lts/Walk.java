@@ -1,8 +1,8 @@
 package de.jojomodding.np.lts;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
 public class Walk<T> {
@@ -10,8 +10,8 @@ public class Walk<T> {
     private final List<Action> action;
 
     public Walk(T start) {
-        this.states = new LinkedList<>();
-        this.action = new LinkedList<>();
+        this.states = new ArrayList<>();
+        this.action = new ArrayList<>();
         states.add(start);
     }
 
@@ -20,6 +20,31 @@ public class Walk<T> {
         action.add(a);
     }
 
+    /**
+     * The visited states, starting with the start state
+     */
+    public List<T> getStates() {
+        return Collections.unmodifiableList(states);
+    }
+
+    /**
+     * The actions of the steps, one fewer than there are states
+     */
+    public List<Action> getActions() {
+        return Collections.unmodifiableList(action);
+    }
+
+    /**
+     * The number of steps
+     */
+    public int length() {
+        return action.size();
+    }
+
+    public T getLast() {
+        return states.get(states.size() - 1);
+    }
+
     @Override
     public String toString() {
         Iterator<T> statesI = states.iterator();
@@ -0,0 +1,178 @@
+package de.jojomodding.np.util;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A cache that holds at most a fixed number of entries, evicting the least recently used one when it overflows.
+ * Optionally, values are only softly referenced, so the garbage collector may also evict them when memory runs low.
+ * Counts hits, misses and evictions.
+ * <p>
+ * The cache can be shared by multiple threads. It is split into independently locked stripes, each of which holds
+ * an equal share of the entries and evicts its own least recently used entry. Small caches use fewer stripes, so that
+ * each stripe is still large enough for the least recently used policy to matter.
+ *
+ * @param <K> the type of the keys. Should have proper equality
+ * @param <V> the type of the values
+ */
+public final class BoundedCache<K, V> {
+
+    private static final int MAX_STRIPES = 64;
+    private static final int MIN_STRIPE_SIZE = 64;
+
+    private final int maximumSize;
+    private final boolean softValues;
+    private final List<Map<K, Object>> stripes;
+    private final Map<K, CompletableFuture<V>> inFlight;
+    private final LongAdder hits, misses, evictions;
+
+    /**
+     * Constructs a new cache
+     * @param maximumSize the maximal number of entries, or {@link Integer#MAX_VALUE} for an unbounded cache
+     * @param softValues whether the values are only softly referenced
+     */
+    public BoundedCache(int maximumSize, boolean softValues) {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException("The maximum size must be positive, not " + maximumSize + "!");
+        this.maximumSize = maximumSize;
+        this.softValues = softValues;
+        this.inFlight = new ConcurrentHashMap<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        int stripeCount = Math.max(1, Math.min(MAX_STRIPES, maximumSize / MIN_STRIPE_SIZE));
+        this.stripes = new ArrayList<>(stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            //the first stripes take the remainder, so the sizes add up to the maximum
+            int stripeSize = maximumSize / stripeCount + (i < maximumSize % stripeCount ? 1 : 0);
+            stripes.add(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Object> eldest) {
+                    if (size() <= stripeSize)
+                        return false;
+                    evictions.increment();
+                    return true;
+                }
+            });
+        }
+    }
+
+    /**
+     * Constructs a cache that never evicts anything
+     */
+    public static <K, V> BoundedCache<K, V> unbounded() {
+        return new BoundedCache<>(Integer.MAX_VALUE, false);
+    }
+
+    private Map<K, Object> stripe(K key) {
+        int h = key.hashCode();
+        return stripes.get(Math.floorMod(h ^ (h >>> 16), stripes.size()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private V lookup(K key) {
+        Map<K, Object> stripe = stripe(key);
+        synchronized (stripe) {
+            Object o = stripe.get(key);
+            V v = softValues && o != null ? ((SoftReference<V>) o).get() : (V) o;
+            if (v == null && o != null) {
+                //cleared by the garbage collector
+                stripe.remove(key);
+                evictions.increment();
+            }
+            return v;
+        }
+    }
+
+    /**
+     * Looks up the value cached for a key
+     * @param key the key
+     * @return the value, or null if none is cached
+     */
+    public V get(K key) {
+        V v = lookup(key);
+        (v == null ? misses : hits).increment();
+        return v;
+    }
+
+    /**
+     * Caches a value for a key, possibly evicting the least recently used entry
+     */
+    public void put(K key, V value) {
+        Map<K, Object> stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.put(key, softValues ? new SoftReference<>(value) : value);
+        }
+    }
+
+    /**
+     * Looks up the value cached for a key, computing and caching it if there is none.
+     * If multiple threads ask for the same missing key at once, only one of them computes the value and the others wait
+     * for it. The computation happens outside of all locks, so it may use this cache itself.
+     * @param key the key
+     * @param compute computes the value for the key
+     * @return the value
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> compute) {
+        V v = get(key);
+        if (v != null)
+            return v;
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null)
+            return running.join();
+        try {
+            //another thread might have finished computing it in the meantime
+            v = lookup(key);
+            if (v == null) {
+                v = compute.apply(key);
+                put(key, v);
+            }
+            mine.complete(v);
+            return v;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<K, Object> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedCache(" + size() + "/" + maximumSize + " entries, " + getHits() + " hits, " + getMisses() + " misses, " + getEvictions() + " evictions)";
+    }
+}
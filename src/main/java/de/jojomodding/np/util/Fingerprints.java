@@ -0,0 +1,36 @@
+package de.jojomodding.np.util;
+
+/**
+ * Builds 64-bit fingerprints, i.e. hashes long enough that collisions between a few billion distinct values are unlikely
+ */
+public final class Fingerprints {
+
+    private Fingerprints() {
+    }
+
+    /**
+     * Scrambles all bits of h, such that each input bit affects each output bit
+     */
+    public static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * Extends the fingerprint h by the value v. The result depends on the order in which values are combined
+     */
+    public static long combine(long h, long v) {
+        return mix(h * 0x9e3779b97f4a7c15L + v);
+    }
+
+    /**
+     * The fingerprint of a string
+     */
+    public static long of(String s) {
+        long h = s.length();
+        for (int i = 0; i < s.length(); i++)
+            h = h * 0x100000001b3L + s.charAt(i);
+        return mix(h);
+    }
+}
@@ -0,0 +1,46 @@
+package de.jojomodding.np.util;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A table of canonical instances: interning two equal objects yields the same object.
+ * Canonical instances are only weakly referenced, so they are dropped once no one else uses them.
+ * The table is split into independently locked stripes, so it can be used from multiple threads.
+ *
+ * @param <T> the type of the interned objects. Should have proper equality
+ */
+public final class Interner<T> {
+
+    private static final int STRIPES = 64;
+
+    private final List<Map<T, WeakReference<T>>> stripes;
+
+    public Interner() {
+        this.stripes = new ArrayList<>(STRIPES);
+        for (int i = 0; i < STRIPES; i++)
+            stripes.add(new WeakHashMap<>());
+    }
+
+    /**
+     * Finds the canonical instance equal to t, making t canonical if there is none yet
+     * @param t the object to intern
+     * @return the canonical instance equal to t
+     */
+    public T intern(T t) {
+        int h = t.hashCode();
+        Map<T, WeakReference<T>> stripe = stripes.get((h ^ (h >>> 16)) & (STRIPES - 1));
+        synchronized (stripe) {
+            WeakReference<T> ref = stripe.get(t);
+            T canonical = ref == null ? null : ref.get();
+            if (canonical != null)
+                return canonical;
+            stripe.put(t, new WeakReference<>(t));
+            return t;
+        }
+    }
+
+}